@@ -0,0 +1,168 @@
+package com.example.musicvisualizer;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.scene.Node;
+import javafx.stage.Stage;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Регулятор частоты анализа спектра и отрисовки.
+ * <ul>
+ *   <li>Окно свёрнуто или визуализатор скрыт — анализ и отрисовка приостанавливаются.</li>
+ *   <li>Окно без фокуса (может быть перекрыто другими) — самый экономный уровень.
+ *       JavaFX не сообщает, перекрыто ли окно на самом деле, поэтому полностью не останавливаемся.</li>
+ *   <li>Иначе уровень подстраивается под измеренное время кадра: работа обработчика спектра
+ *       плюс опоздание кадра относительно интервала (признак перегруженного FX-потока).
+ *       Выше прежнего уровня по умолчанию качество поднимается, только если это разрешено явно
+ *       ({@code -Dvisualizer.fastSpectrum=true}): частый анализ стоит процессора и батареи.</li>
+ * </ul>
+ * Все методы вызываются в FX-потоке.
+ */
+final class AdaptiveGovernor {
+
+    /** Интервал обновления спектра (с) и число полос. */
+    record Level(double interval, int bands) {}
+
+    // От самого подробного к самому экономному; уровень 1 — прежние 0.045 с / 68 полос,
+    // уровень 0 — только по явному разрешению
+    static final Level[] LEVELS = {
+            new Level(0.030, 68),
+            new Level(0.045, 68),
+            new Level(0.070, 48),
+            new Level(0.100, 34),
+            new Level(0.200, 20)
+    };
+    static final int DEFAULT_LEVEL = 1;
+
+    static final int WINDOW = 30;                  // кадров на одно решение
+    static final int SETTLE_WINDOWS = 3;           // окон без перегрузки перед повышением качества
+    private static final double SMOOTHING = 0.1;
+    private static final int MAX_LATE_INTERVALS = 4; // более длинный разрыв — пауза, а не перегрузка
+
+    private final double budgetNanos;
+    private final int bestLevel;
+    private final LongSupplier clock;
+    private final ReadOnlyIntegerWrapper level = new ReadOnlyIntegerWrapper(DEFAULT_LEVEL);
+    private final ReadOnlyBooleanWrapper suspended = new ReadOnlyBooleanWrapper(false);
+
+    private int loadLevel = DEFAULT_LEVEL;  // уровень по нагрузке, без учёта фокуса
+    private boolean focused = true;
+    private Runnable onChange = () -> {};
+
+    private double avgFrameNanos;
+    private long lastFrameStart;
+    private int frames;
+    private int calmWindows;
+
+    /** allowFaster — разрешить уровни чаще {@link #DEFAULT_LEVEL}, когда машина простаивает. */
+    AdaptiveGovernor(double budgetMillis, boolean allowFaster) {
+        this(budgetMillis, allowFaster, System::nanoTime);
+    }
+
+    AdaptiveGovernor(double budgetMillis, boolean allowFaster, LongSupplier clock) {
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.bestLevel = allowFaster ? 0 : DEFAULT_LEVEL;
+        this.clock = clock;
+    }
+
+    void bind(Stage stage, Node visualizer) {
+        stage.iconifiedProperty().addListener((o, a, b) -> updateSuspended(stage, visualizer));
+        visualizer.visibleProperty().addListener((o, a, b) -> updateSuspended(stage, visualizer));
+        stage.focusedProperty().addListener((o, a, b) -> {
+            focused = b;
+            updateLevel();
+        });
+        focused = stage.isFocused();
+        updateSuspended(stage, visualizer);
+        updateLevel();
+    }
+
+    /** Вызывается при смене уровня или приостановке. */
+    void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    /* ================= MEASUREMENT ================= */
+    long beginFrame() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Поток кадров прервался не из-за нагрузки (пауза, перемотка, смена трека):
+     * следующий интервал не считается опозданием.
+     */
+    void restartTiming() {
+        lastFrameStart = 0;
+    }
+
+    void endFrame(long start) {
+        long now = clock.getAsLong();
+        double cost = now - start;
+        if (lastFrameStart != 0) {
+            double expected = getLevel().interval() * 1e9;
+            double late = (start - lastFrameStart) - expected;
+            if (late < expected * MAX_LATE_INTERVALS) cost += Math.max(0, late);
+        }
+        lastFrameStart = start;
+        avgFrameNanos += (cost - avgFrameNanos) * SMOOTHING;
+
+        if (++frames < WINDOW) return;
+        frames = 0;
+
+        if (avgFrameNanos > budgetNanos && loadLevel < LEVELS.length - 1) {
+            loadLevel++;
+            calmWindows = 0;
+            updateLevel();
+        } else if (avgFrameNanos < budgetNanos / 2 && loadLevel > bestLevel) {
+            if (++calmWindows >= SETTLE_WINDOWS) {
+                loadLevel--;
+                calmWindows = 0;
+                updateLevel();
+            }
+        } else {
+            calmWindows = 0;
+        }
+    }
+
+    /* ================= STATE ================= */
+    private void updateSuspended(Stage stage, Node visualizer) {
+        boolean s = stage.isIconified() || !visualizer.isVisible();
+        if (s == suspended.get()) return;
+        suspended.set(s);
+        // После паузы интервал между кадрами не показателен
+        restartTiming();
+        onChange.run();
+    }
+
+    private void updateLevel() {
+        int l = focused ? loadLevel : LEVELS.length - 1;
+        if (l == level.get()) return;
+        level.set(l);
+        restartTiming();
+        onChange.run();
+    }
+
+    Level getLevel() {
+        return LEVELS[level.get()];
+    }
+
+    ReadOnlyIntegerProperty levelProperty() {
+        return level.getReadOnlyProperty();
+    }
+
+    boolean isSuspended() {
+        return suspended.get();
+    }
+
+    ReadOnlyBooleanProperty suspendedProperty() {
+        return suspended.getReadOnlyProperty();
+    }
+
+    double getAverageFrameMillis() {
+        return avgFrameNanos / 1_000_000;
+    }
+}
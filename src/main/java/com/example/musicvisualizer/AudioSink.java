@@ -0,0 +1,31 @@
+package com.example.musicvisualizer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/** Приёмник PCM для {@link SampledAudioBackend}: звуковая карта или «ничего» для тестов. */
+interface AudioSink extends AutoCloseable {
+
+    void open(AudioFormat format, int bufferBytes) throws LineUnavailableException;
+
+    /** Пишет данные, блокируясь, пока в буфере нет места (этим задаётся темп воспроизведения). */
+    int write(byte[] data, int offset, int length);
+
+    void start();
+
+    void stop();
+
+    /** Сбрасывает ещё не проигранные данные (при перемотке). */
+    void flush();
+
+    /** Дожидается, пока буфер будет проигран до конца. */
+    void drain();
+
+    /** Количество фактически проигранных кадров с момента open/flush. */
+    long getFramePosition();
+
+    void setVolume(double volume);
+
+    @Override
+    void close();
+}
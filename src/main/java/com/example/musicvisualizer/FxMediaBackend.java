@@ -0,0 +1,102 @@
+package com.example.musicvisualizer;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.util.function.Consumer;
+
+/** Бэкенд на JavaFX {@link MediaPlayer}. */
+final class FxMediaBackend implements PlaybackBackend {
+
+    private final MediaPlayer mediaPlayer;
+
+    FxMediaBackend(File file) {
+        mediaPlayer = new MediaPlayer(new Media(file.toURI().toString()));
+    }
+
+    @Override
+    public void setOnReady(Runnable onReady) {
+        mediaPlayer.setOnReady(onReady);
+    }
+
+    @Override
+    public void setOnError(Consumer<String> onError) {
+        // Ошибки Media (файл не найден, формат не поддерживается) тоже приходят сюда
+        mediaPlayer.setOnError(onError == null ? null
+                : () -> onError.accept(String.valueOf(mediaPlayer.getError())));
+    }
+
+    @Override
+    public void play() {
+        mediaPlayer.play();
+    }
+
+    @Override
+    public void pause() {
+        mediaPlayer.pause();
+    }
+
+    @Override
+    public void stop() {
+        mediaPlayer.stop();
+    }
+
+    @Override
+    public void dispose() {
+        mediaPlayer.dispose();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING;
+    }
+
+    @Override
+    public void seek(Duration time) {
+        mediaPlayer.seek(time);
+    }
+
+    @Override
+    public void setVolume(double volume) {
+        mediaPlayer.setVolume(volume);
+    }
+
+    @Override
+    public Duration getCurrentTime() {
+        return mediaPlayer.getCurrentTime();
+    }
+
+    @Override
+    public Duration getTotalDuration() {
+        return mediaPlayer.getTotalDuration();
+    }
+
+    @Override
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return mediaPlayer.currentTimeProperty();
+    }
+
+    @Override
+    public void setAudioSpectrumInterval(double interval) {
+        mediaPlayer.setAudioSpectrumInterval(interval);
+    }
+
+    @Override
+    public void setAudioSpectrumNumBands(int bands) {
+        mediaPlayer.setAudioSpectrumNumBands(bands);
+    }
+
+    @Override
+    public void setAudioSpectrumThreshold(int threshold) {
+        mediaPlayer.setAudioSpectrumThreshold(threshold);
+    }
+
+    @Override
+    public void setAudioSpectrumListener(AudioSpectrumListener listener) {
+        mediaPlayer.setAudioSpectrumListener(listener);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.musicvisualizer;
+
+import java.util.List;
+
+/**
+ * Точка входа приложения. Не наследует {@link javafx.application.Application}, поэтому
+ * лаунчер Java не поднимает JavaFX заранее: второй запуск передаёт команды работающему
+ * плееру через {@link SingleInstance} и завершается, не платя за старт тулкита.
+ */
+public final class Launcher {
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) {
+        start(args);
+    }
+
+    /** Запускает плеер; false — команды переданы уже работающему экземпляру. */
+    static boolean start(String[] args) {
+        SingleInstance instance = null;
+        if (!Boolean.getBoolean("visualizer.multiInstance")) {
+            instance = SingleInstance.claim(SingleInstance.parseArgs(List.of(args)));
+            if (instance == null) return false;
+        }
+        MainApp.launch(instance, args);
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.musicvisualizer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.BooleanControl;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/** Вывод на звуковую карту через {@link SourceDataLine}. */
+final class LineAudioSink implements AudioSink {
+
+    private SourceDataLine line;
+    private volatile long positionOffset; // flush() вызывается и из FX-потока при перемотке
+    private volatile boolean running;
+
+    @Override
+    public void open(AudioFormat format, int bufferBytes) throws LineUnavailableException {
+        line = AudioSystem.getSourceDataLine(format);
+        line.open(format, bufferBytes);
+    }
+
+    @Override
+    public int write(byte[] data, int offset, int length) {
+        return line.write(data, offset, length);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        line.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        line.stop();
+    }
+
+    @Override
+    public void flush() {
+        line.flush();
+        positionOffset = line.getLongFramePosition();
+    }
+
+    // SourceDataLine.drain() на остановленной линии ждёт, пока её снова запустят, —
+    // пауза во время доигрывания повесила бы поток. Ждём сами и сдаёмся при stop и flush
+    @Override
+    public void drain() {
+        while (running && line.available() < line.getBufferSize()) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getFramePosition() {
+        return line.getLongFramePosition() - positionOffset;
+    }
+
+    @Override
+    public void setVolume(double volume) {
+        if (line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+            FloatControl gain = (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN);
+            double db = volume <= 0 ? gain.getMinimum() : 20 * Math.log10(volume);
+            gain.setValue((float) Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), db)));
+        } else if (line.isControlSupported(BooleanControl.Type.MUTE)) {
+            ((BooleanControl) line.getControl(BooleanControl.Type.MUTE)).setValue(volume <= 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (line != null) line.close();
+    }
+}
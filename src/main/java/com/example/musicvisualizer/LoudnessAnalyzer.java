@@ -0,0 +1,356 @@
+package com.example.musicvisualizer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Фоновый анализ громкости треков по EBU R128 / ReplayGain 2.0: интегральная громкость (LUFS)
+ * и true peak (dBTP). Треки анализируются параллельно на всех ядрах, каждый — потоково
+ * в буфере фиксированного размера. Результаты кэшируются на диске и проверяются по размеру
+ * и дате изменения файла.
+ * <p>
+ * Декодирование идёт через javax.sound, поэтому без дополнительных SPI измеряются только
+ * PCM-форматы (WAV/AIFF/AU). Для остальных (в том числе MP3) в кэш пишется «неизмеримо»,
+ * и такие треки считаются лежащими на целевой громкости. Запас для усиления тихих треков
+ * ({@link #headroomDb}) берётся только когда в плейлисте есть измеренный трек, которому он нужен,
+ * поэтому плейлист из одних MP3 играет с прежней громкостью. Ошибки чтения (файл ещё копируется,
+ * диск недоступен) не кэшируются — трек будет проанализирован при следующем запросе.
+ */
+final class LoudnessAnalyzer {
+
+    static final double DEFAULT_TARGET_LUFS = -18;
+    static final double DEFAULT_HEADROOM_DB = 6; // наибольший запас; реальный — см. headroomDb
+
+    private static final double TRUE_PEAK_LIMIT_DB = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Результат анализа; NaN в {@link #integratedLufs} — формат не удалось декодировать. */
+    record Loudness(double integratedLufs, double truePeakDb) {
+
+        static final Loudness UNKNOWN = new Loudness(Double.NaN, Double.NaN);
+
+        boolean isKnown() {
+            return !Double.isNaN(integratedLufs) && !Double.isInfinite(integratedLufs);
+        }
+
+        /** Усиление до целевой громкости в дБ, без учёта пика. */
+        double gainDb(double targetLufs) {
+            return isKnown() ? targetLufs - integratedLufs : 0;
+        }
+
+        /** Линейный множитель громкости, ограниченный так, чтобы пик не превышал -1 dBTP. */
+        double gain(double targetLufs) {
+            if (!isKnown()) return 1.0;
+            double db = gainDb(targetLufs);
+            if (!Double.isNaN(truePeakDb)) db = Math.min(db, TRUE_PEAK_LIMIT_DB - truePeakDb);
+            return Math.pow(10, db / 20);
+        }
+
+        /**
+         * Множитель для плеера, который не умеет усиливать выше 1.0. Все треки приглушаются
+         * на headroomDb, поэтому записи до headroomDb тише цели тоже выравниваются вверх,
+         * а не только громкие вниз. Неизмеренные треки получают ту же поправку, что и трек на цели.
+         */
+        double playbackGain(double targetLufs, double headroomDb) {
+            return Math.min(1.0, gain(targetLufs) * Math.pow(10, -headroomDb / 20));
+        }
+    }
+
+    private record Entry(long size, long modified, Loudness loudness) {}
+
+    private final Path cacheFile;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Loudness>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    LoudnessAnalyzer(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors()),
+                r -> {
+                    Thread t = new Thread(r, "loudness-analyzer");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+        loadCache();
+    }
+
+    /** Значение из кэша, если файл не менялся с момента анализа; иначе null. */
+    Loudness cached(File file) {
+        Entry e = cache.get(file.getAbsolutePath());
+        if (e == null || e.size != file.length() || e.modified != file.lastModified()) return null;
+        return e.loudness;
+    }
+
+    /**
+     * Запас для {@link Loudness#playbackGain}: на сколько нужно поднять самый тихий из уже
+     * измеренных треков, но не больше maxHeadroomDb. Если поднимать некого, запас 0 и громкость
+     * не меняется. Дату файлов не проверяет — это оценка для всего плейлиста, а не для одного трека.
+     */
+    double headroomDb(List<File> files, double targetLufs, double maxHeadroomDb) {
+        double need = 0;
+        for (File f : files) {
+            Entry e = cache.get(f.getAbsolutePath());
+            if (e != null && e.loudness.isKnown()) need = Math.max(need, 20 * Math.log10(e.loudness.gain(targetLufs)));
+        }
+        return Math.min(need, maxHeadroomDb);
+    }
+
+    CompletableFuture<Loudness> analyze(File file) {
+        Loudness known = cached(file);
+        if (known != null) return CompletableFuture.completedFuture(known);
+
+        String key = file.getAbsolutePath();
+        CompletableFuture<Loudness> f = pending.computeIfAbsent(key, k ->
+                CompletableFuture.supplyAsync(() -> {
+                    long size = file.length(), modified = file.lastModified();
+                    try {
+                        Loudness result = measure(file);
+                        store(k, new Entry(size, modified, result));
+                        return result;
+                    } catch (IOException e) {
+                        return Loudness.UNKNOWN; // временный сбой — в кэш не пишем
+                    }
+                }, executor));
+        f.whenComplete((r, e) -> pending.remove(key, f));
+        return f;
+    }
+
+    void analyzeAll(List<File> files) {
+        for (File f : files) analyze(f);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /* ================= MEASUREMENT ================= */
+    /** UNKNOWN — формат не декодируется; IOException — файл не удалось прочитать. */
+    static Loudness measure(File file) throws IOException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(file);
+             AudioInputStream pcm = toPcm16(source)) {
+            AudioFormat fmt = pcm.getFormat();
+            Meter meter = new Meter(fmt.getSampleRate(), fmt.getChannels());
+
+            byte[] buf = new byte[BUFFER_SIZE - BUFFER_SIZE % fmt.getFrameSize()];
+            boolean bigEndian = fmt.isBigEndian();
+            int channels = fmt.getChannels();
+            int n;
+            while ((n = pcm.read(buf)) > 0) {
+                for (int i = 0; i + 2 * channels <= n; i += 2 * channels) {
+                    for (int c = 0; c < channels; c++) {
+                        int lo = buf[i + 2 * c + (bigEndian ? 1 : 0)] & 0xFF;
+                        int hi = buf[i + 2 * c + (bigEndian ? 0 : 1)];
+                        meter.sample(c, ((hi << 8) | lo) / 32768.0);
+                    }
+                    meter.endFrame();
+                }
+            }
+            return new Loudness(meter.integratedLufs(), meter.truePeakDb());
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            return Loudness.UNKNOWN;
+        }
+    }
+
+    private static AudioInputStream toPcm16(AudioInputStream in) {
+        AudioFormat src = in.getFormat();
+        if (src.getEncoding() == AudioFormat.Encoding.PCM_SIGNED && src.getSampleSizeInBits() == 16) return in;
+        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, src.getSampleRate(), 16,
+                src.getChannels(), src.getChannels() * 2, src.getSampleRate(), false);
+        return AudioSystem.getAudioInputStream(target, in);
+    }
+
+    /**
+     * Измеритель BS.1770: K-фильтр, блоки 400 мс с шагом 100 мс, абсолютный (-70 LUFS)
+     * и относительный (-10 LU) гейты. Блоки копятся в гистограмме с шагом 0.1 дБ,
+     * поэтому память не зависит от длины трека.
+     */
+    static final class Meter {
+        private static final double HIST_MIN = -70, HIST_STEP = 0.1;
+        private static final int HIST_BINS = 800; // -70 .. +10 LUFS
+        private static final int TP_TAPS = 12, TP_PHASES = 3;
+
+        private final int subBlockFrames;
+
+        // K-фильтр: полка + фильтр высоких частот, состояние на каждый канал
+        private final double sb0, sb1, sb2, sa1, sa2;
+        private final double hb0, hb1, hb2, ha1, ha2;
+        private final double[][] state;
+
+        private final double[] subBlocks = new double[4];
+        private double subBlockSum;
+        private int subBlockCount, subBlockIndex, filledSubBlocks;
+
+        private final long[] histCount = new long[HIST_BINS];
+        private final double[] histEnergy = new double[HIST_BINS];
+
+        // true peak: 4x передискретизация windowed-sinc, только для частот ниже 96 кГц
+        private final double[][] tpCoeffs;
+        private final double[][] tpHistory;
+        private int tpPos;
+        private double peak;
+
+        Meter(double sampleRate, int channels) {
+            this.subBlockFrames = Math.max(1, (int) Math.round(sampleRate * 0.1));
+            this.state = new double[channels][4];
+
+            double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+            double q = 0.7071752369554196;
+            double vh = Math.pow(10, 3.999843853973347 / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            sb0 = (vh + vb * k / q + k * k) / a0;
+            sb1 = 2 * (k * k - vh) / a0;
+            sb2 = (vh - vb * k / q + k * k) / a0;
+            sa1 = 2 * (k * k - 1) / a0;
+            sa2 = (1 - k / q + k * k) / a0;
+
+            k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+            q = 0.5003270373238773;
+            a0 = 1 + k / q + k * k;
+            hb0 = 1;
+            hb1 = -2;
+            hb2 = 1;
+            ha1 = 2 * (k * k - 1) / a0;
+            ha2 = (1 - k / q + k * k) / a0;
+
+            if (sampleRate < 96000) {
+                tpCoeffs = new double[TP_PHASES][TP_TAPS];
+                double center = TP_TAPS / 2 - 1;
+                for (int p = 0; p < TP_PHASES; p++) {
+                    double frac = (p + 1) / 4.0;
+                    for (int j = 0; j < TP_TAPS; j++) {
+                        double x = center + frac - j;
+                        double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                        double window = 0.5 * (1 + Math.cos(Math.PI * x / (TP_TAPS / 2 + 0.5)));
+                        tpCoeffs[p][j] = sinc * window;
+                    }
+                }
+                tpHistory = new double[channels][TP_TAPS];
+            } else {
+                tpCoeffs = null;
+                tpHistory = null;
+            }
+        }
+
+        void sample(int channel, double x) {
+            updatePeak(x);
+
+            if (tpHistory != null) {
+                double[] h = tpHistory[channel];
+                h[tpPos] = x;
+                for (double[] c : tpCoeffs) {
+                    double y = 0;
+                    for (int j = 0; j < TP_TAPS; j++) y += c[j] * h[(tpPos + 1 + j) % TP_TAPS];
+                    updatePeak(y);
+                }
+            }
+
+            double[] s = state[channel];
+            double y1 = sb0 * x + s[0];
+            s[0] = sb1 * x - sa1 * y1 + s[1];
+            s[1] = sb2 * x - sa2 * y1;
+            double y2 = hb0 * y1 + s[2];
+            s[2] = hb1 * y1 - ha1 * y2 + s[3];
+            s[3] = hb2 * y1 - ha2 * y2;
+
+            subBlockSum += y2 * y2;
+        }
+
+        private void updatePeak(double y) {
+            double ay = Math.abs(y);
+            if (ay > peak) peak = ay;
+        }
+
+        void endFrame() {
+            if (tpHistory != null) tpPos = (tpPos + 1) % TP_TAPS;
+            if (++subBlockCount < subBlockFrames) return;
+
+            subBlocks[subBlockIndex] = subBlockSum / subBlockCount;
+            subBlockIndex = (subBlockIndex + 1) % subBlocks.length;
+            subBlockSum = 0;
+            subBlockCount = 0;
+
+            if (++filledSubBlocks < subBlocks.length) return;
+            double energy = (subBlocks[0] + subBlocks[1] + subBlocks[2] + subBlocks[3]) / 4;
+            double lufs = toLufs(energy);
+            if (lufs < HIST_MIN) return;
+
+            int bin = Math.min(HIST_BINS - 1, (int) ((lufs - HIST_MIN) / HIST_STEP));
+            histCount[bin]++;
+            histEnergy[bin] += energy;
+        }
+
+        double integratedLufs() {
+            long count = 0;
+            double energy = 0;
+            for (int i = 0; i < HIST_BINS; i++) {
+                count += histCount[i];
+                energy += histEnergy[i];
+            }
+            if (count == 0) return Double.NEGATIVE_INFINITY;
+
+            double relativeGate = toLufs(energy / count) - 10;
+            int first = Math.max(0, (int) Math.ceil((relativeGate - HIST_MIN) / HIST_STEP));
+            count = 0;
+            energy = 0;
+            for (int i = first; i < HIST_BINS; i++) {
+                count += histCount[i];
+                energy += histEnergy[i];
+            }
+            return count == 0 ? Double.NEGATIVE_INFINITY : toLufs(energy / count);
+        }
+
+        double truePeakDb() {
+            return peak == 0 ? Double.NEGATIVE_INFINITY : 20 * Math.log10(peak);
+        }
+
+        private static double toLufs(double energy) {
+            return -0.691 + 10 * Math.log10(energy);
+        }
+    }
+
+    /* ================= CACHE ================= */
+    private void loadCache() {
+        if (!Files.exists(cacheFile)) return;
+        try (BufferedReader r = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] p = line.split("\t");
+                if (p.length != 5) continue;
+                try {
+                    cache.put(p[0], new Entry(Long.parseLong(p[1]), Long.parseLong(p[2]),
+                            new Loudness(Double.parseDouble(p[3]), Double.parseDouble(p[4]))));
+                } catch (NumberFormatException ignored) {}
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private synchronized void store(String path, Entry e) {
+        cache.put(path, e);
+        // Дописываем в конец: при загрузке более поздние строки перекрывают ранние
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            w.println(String.format(Locale.ROOT, "%s\t%d\t%d\t%s\t%s", path, e.size, e.modified,
+                    e.loudness.integratedLufs, e.loudness.truePeakDb));
+        } catch (IOException ignored) {}
+    }
+}
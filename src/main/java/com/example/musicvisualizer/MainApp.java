@@ -1,40 +1,47 @@
 package com.example.musicvisualizer;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.effect.DropShadow;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
+import javafx.scene.media.AudioSpectrumListener;
 import javafx.scene.paint.*;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.*;
 import javafx.util.Duration;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class MainApp extends Application {
 
     private static final int BANDS = 68;
     private static final double FIXED_WIDTH = 520;
     private static final String PLAYLIST_FILE = "playlist.txt";
+    private static final String LOUDNESS_CACHE_FILE = "loudness.cache";
+    private static final int SPECTRUM_THRESHOLD = -60;
 
-    private MediaPlayer mediaPlayer;
+    private PlaybackBackend player; // бэкенд текущего трека, его открывает PlayerController
 
-    private final Rectangle[] bars = new Rectangle[BANDS];
-    private final double[] smoothedHeights = new double[BANDS];
+    private final Playlist playlist = new Playlist();
+    private final PlaylistStore playlistStore = PlaylistStore.file(Path.of(PLAYLIST_FILE));
+    private final PlayerController controller = new PlayerController(playlist, PlaybackBackend::open);
+    private boolean playlistLoaded = false; // Плейлист читается с диска в фоне после первого кадра
 
-    private final ArrayList<File> playlist = new ArrayList<>();
-    private int currentIndex = -1;
+    private Stage playlistWindow;            // Окно плейлиста создаётся один раз и переиспользуется
+    private ListView<String> playlistView;
 
     private Label nowPlayingLabel;
     private Label emptyLabel;
@@ -46,20 +53,67 @@ public class MainApp extends Application {
     private boolean muted = false;
     private boolean isDragging = false;
     private double lastVolume = 1.0;
-    private boolean darkTheme = true; // Текущая тема (по умолчанию темная)
-    private boolean isThemeTransitioning = false; // Флаг для предотвращения повторных переходов
+    private ThemeEngine themes;
+    private boolean customPalette = false; // Палитра выбрана вручную и не меняется вместе с темой
 
     private Button playBtn, prevBtn, nextBtn, playlistBtn, themeBtn, volumeBtn;
     private HBox visualizer;
+    private HBox colorControls;
     private StackPane root;
     private StackPane glass;
 
     /* ===== VISUALIZER COLORS ===== */
-    private Color colorLow = Color.web("#4facfe");
-    private Color colorHigh = Color.web("#ff4e50");
+    private Color colorLow = Theme.DARK.colorLow;
+    private Color colorHigh = Theme.DARK.colorHigh;
+
+    /* ===== SPECTRUM ===== */
+    private final SpectrumProcessor spectrum = new SpectrumProcessor(BANDS, SPECTRUM_THRESHOLD);
+    private SpectrumBars spectrumBars; // строятся после первого кадра
+    private final AudioSpectrumListener spectrumListener = this::updateSpectrum;
+    private SpectrumRecorder spectrumRecorder; // -Dvisualizer.record=<file>
+    private Thread spectrumReplay;             // -Dvisualizer.replay=<file>
+    private final AdaptiveGovernor governor = new AdaptiveGovernor(
+            Double.parseDouble(System.getProperty("visualizer.frameBudgetMs", "8")),
+            Boolean.getBoolean("visualizer.fastSpectrum"));
+
+    /* ===== LOUDNESS ===== */
+    private LoudnessAnalyzer loudness;
+    private final double loudnessTarget = Double.parseDouble(
+            System.getProperty("visualizer.loudnessTarget", String.valueOf(LoudnessAnalyzer.DEFAULT_TARGET_LUFS)));
+    private final double loudnessHeadroom = Double.parseDouble(
+            System.getProperty("visualizer.loudnessHeadroom", String.valueOf(LoudnessAnalyzer.DEFAULT_HEADROOM_DB)));
+    private double trackGain = 1.0;      // множитель громкости текущего трека
+    private double spectrumGainDb = 0;   // та же поправка для масштаба визуализатора
+
+    /* ===== UI UPDATES ===== */
+    // Обновления прогресса, времени и состояния кнопок применяются не чаще раза за кадр
+    private final UiPulse uiPulse = new UiPulse();
+    private final TimeLabelFormatter timeFormatter = new TimeLabelFormatter();
+    private UiPulse.DoubleSlot progressSlot;
+    private UiPulse.Flag timeLabelFlag;
+    private UiPulse.Flag controlsFlag;
+    private double shownSeconds;
+    private FadeTransition emptyLabelFade;
+    private FadeTransition visualizerFade;
+    private FadeTransition trackIntroFade;
+
+    /* ===== SINGLE INSTANCE ===== */
+    private static SingleInstance singleInstance; // сокет занимается в Launcher до запуска JavaFX
+    private Stage stage;
+    private final List<String> pendingCommands = new ArrayList<>(); // команды до загрузки плейлиста
+    private boolean firstAudioHeard; // отметка FIRST_AUDIO уже поставлена
 
     @Override
     public void start(Stage stage) {
+        StartupTimeline.mark(StartupTimeline.FX_START);
+
+        // Команды своей командной строки и других запусков применяются после загрузки плейлиста
+        this.stage = stage;
+        pendingCommands.addAll(SingleInstance.parseArgs(getParameters().getRaw()));
+        if (singleInstance != null) singleInstance.setHandler(this::applyCommands);
+
+        // Быстрый старт: до первого кадра строится только каркас окна,
+        // полосы, кнопки цветов, плейлист и кэш громкости — после (см. finishStartup)
 
         /* ================= VISUALIZER ================= */
         visualizer = new HBox(-0.88);
@@ -67,19 +121,17 @@ public class MainApp extends Application {
         visualizer.setPrefHeight(220);
         visualizer.setOpacity(0);
 
-        for (int i = 0; i < BANDS; i++) {
-            Rectangle bar = new Rectangle(10, 5);
-            bar.setArcWidth(6);
-            bar.setArcHeight(6);
-            bars[i] = bar;
-            smoothedHeights[i] = 5;
-            visualizer.getChildren().add(bar);
-        }
-
         emptyLabel = new Label("🎵 Add music files to start\nSupported: MP3, WAV");
-        emptyLabel.setStyle("-fx-text-fill:#AAAAAA; -fx-font-size:16px;");
+        emptyLabel.getStyleClass().add("empty-label");
         emptyLabel.setAlignment(Pos.CENTER);
 
+        emptyLabelFade = new FadeTransition(Duration.millis(300), emptyLabel);
+        visualizerFade = new FadeTransition(Duration.millis(300), visualizer);
+        visualizerFade.setToValue(1.0);
+        trackIntroFade = new FadeTransition(Duration.millis(400), visualizer);
+        trackIntroFade.setFromValue(0);
+        trackIntroFade.setToValue(1);
+
         // Контейнер для центрирования визуализатора
         HBox visualizerWrapper = new HBox(visualizer);
         visualizerWrapper.setAlignment(Pos.CENTER);
@@ -98,29 +150,29 @@ public class MainApp extends Application {
         playBtn = createButton("▶");
         nextBtn = createButton("⏭");
         playlistBtn = createButton("☰");
-        themeBtn = createButton("🌙"); // Кнопка переключения темы
+        themeBtn = createButton(Theme.DARK.icon); // Кнопка переключения темы
 
         volumeBtn = createButton("🔊");
         volumeSlider = new Slider(0, 1, 1);
 
         volumeBtn.setOnAction(e -> {
-            if (mediaPlayer == null) return;
+            if (player == null) return;
             if (!muted) {
                 lastVolume = volumeSlider.getValue();
                 volumeSlider.setValue(0);
-                mediaPlayer.setVolume(0);
+                applyVolume(0);
                 volumeBtn.setText("🔇");
                 muted = true;
             } else {
                 volumeSlider.setValue(lastVolume);
-                mediaPlayer.setVolume(lastVolume);
+                applyVolume(lastVolume);
                 volumeBtn.setText("🔊");
                 muted = false;
             }
         });
 
         volumeSlider.valueProperty().addListener((o, a, b) -> {
-            if (mediaPlayer != null) mediaPlayer.setVolume(b.doubleValue());
+            if (player != null) applyVolume(b.doubleValue());
         });
 
         // Убрана кнопка загрузки с основной панели
@@ -131,28 +183,22 @@ public class MainApp extends Application {
         controls.setAlignment(Pos.CENTER);
 
         /* ================= COLOR BUTTONS ================= */
-        HBox colorControls = new HBox(10,
-                createColorBtn(Color.web("#4facfe"), Color.web("#ff4e50")),
-                createColorBtn(Color.web("#00c6ff"), Color.web("#0072ff")),
-                createColorBtn(Color.web("#43e97b"), Color.web("#38f9d7")),
-                createColorBtn(Color.web("#fa709a"), Color.web("#fee140")),
-                createColorBtn(Color.web("#667eea"), Color.web("#764ba2"))
-        );
+        colorControls = new HBox(10);
         colorControls.setAlignment(Pos.CENTER);
+        colorControls.setMinHeight(26);
 
         nowPlayingLabel = new Label("—");
-        nowPlayingLabel.setStyle(
-                "-fx-text-fill:#E0E0E0;" +
-                        "-fx-background-color:rgba(255,255,255,0.14);" +
-                        "-fx-padding:6 14;" +
-                        "-fx-background-radius:8;"
-        );
+        nowPlayingLabel.getStyleClass().add("now-playing");
 
         progressSlider = new Slider();
         progressSlider.setPrefWidth(FIXED_WIDTH);
 
         timeLabel = new Label("00:00 / 00:00");
-        timeLabel.setStyle("-fx-text-fill:#B0B0B0;");
+        timeLabel.getStyleClass().add("time-label");
+
+        progressSlot = uiPulse.doubleSlot(progressSlider::setValue);
+        timeLabelFlag = uiPulse.flag(this::renderTimeLabel);
+        controlsFlag = uiPulse.flag(this::applyControlsState);
 
         VBox progressBox = new VBox(6, progressSlider, timeLabel);
         progressBox.setAlignment(Pos.CENTER);
@@ -169,27 +215,20 @@ public class MainApp extends Application {
         content.setPadding(new Insets(26));
 
         glass = new StackPane(content);
-        glass.setStyle("-fx-background-color:rgba(20,20,20,0.55); -fx-background-radius:18;");
+        glass.getStyleClass().add("glass");
         glass.setMaxWidth(820);
 
         root = new StackPane(glass);
         root.setPadding(new Insets(30));
 
-        // Сначала устанавливаем темную тему напрямую
-        root.setBackground(new Background(new BackgroundFill(
-                new LinearGradient(
-                        0,0,1,1,true,CycleMethod.NO_CYCLE,
-                        new Stop(0, Color.web("#0f2027")),
-                        new Stop(0.5, Color.web("#16222a")),
-                        new Stop(1, Color.web("#000000"))
-                ),
-                CornerRadii.EMPTY, Insets.EMPTY
-        )));
-
         Scene scene = new Scene(root, 900, 600);
+        // Таблица стилей подключается один раз, тема — класс на корне сцены
+        themes = new ThemeEngine(scene, glass, Theme.DARK);
         stage.setScene(scene);
         stage.setTitle("Music Visualizer");
 
+        setupPlayer();
+
         // Устанавливаем обработку горячих клавиш ДО показа окна
         setupHotkeys(scene);
 
@@ -200,11 +239,25 @@ public class MainApp extends Application {
         // Обработчик клика для получения фокуса
         root.setOnMouseClicked(e -> root.requestFocus());
 
+        // Первый кадр: после него достраиваем всё остальное
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                StartupTimeline.mark(StartupTimeline.FIRST_FRAME);
+                Platform.runLater(MainApp.this::finishStartup);
+            }
+        });
+
         stage.show();
 
         // Запрашиваем фокус после показа окна
         root.requestFocus();
 
+        // Частота анализа зависит от видимости окна и нагрузки
+        governor.setOnChange(this::applySpectrumSettings);
+        governor.bind(stage, visualizer);
+
         /* ================= EVENTS ================= */
         // Кнопка загрузки теперь только в окне плейлиста
         playlistBtn.setOnAction(e -> showPlaylistWindow());
@@ -217,22 +270,72 @@ public class MainApp extends Application {
         // Исправлено: добавлена обработка перетаскивания ползунка
         progressSlider.setOnMousePressed(e -> isDragging = true);
         progressSlider.setOnMouseDragged(e -> {
-            if (mediaPlayer != null) {
-                mediaPlayer.seek(Duration.millis(progressSlider.getValue()));
-                timeLabel.setText(format(Duration.millis(progressSlider.getValue())) + " / " +
-                        format(mediaPlayer.getTotalDuration()));
+            if (player != null) {
+                seek(Duration.millis(progressSlider.getValue()));
+                postTimeLabel(Duration.millis(progressSlider.getValue()));
             }
         });
         progressSlider.setOnMouseReleased(e -> {
-            if (mediaPlayer != null) {
-                mediaPlayer.seek(Duration.millis(progressSlider.getValue()));
+            if (player != null) {
+                seek(Duration.millis(progressSlider.getValue()));
             }
             isDragging = false;
         });
 
-        loadPlaylist();
         updateControlsState();
+    }
+
+    /* ================= DEFERRED STARTUP ================= */
+    private void finishStartup() {
+        spectrumBars = new SpectrumBars(spectrum);
+        visualizer.getChildren().setAll(spectrumBars.nodes());
+
+        colorControls.getChildren().setAll(
+                createColorBtn(Color.web("#4facfe"), Color.web("#ff4e50")),
+                createColorBtn(Color.web("#00c6ff"), Color.web("#0072ff")),
+                createColorBtn(Color.web("#43e97b"), Color.web("#38f9d7")),
+                createColorBtn(Color.web("#fa709a"), Color.web("#fee140")),
+                createColorBtn(Color.web("#667eea"), Color.web("#764ba2"))
+        );
+
         refreshBarsColor(); // Инициализация цвета при запуске
+        setupSpectrumCapture();
+        StartupTimeline.mark(StartupTimeline.UI_READY);
+
+        // Диск (плейлист и кэш громкости) читаем в фоне, чтобы не держать FX-поток
+        CompletableFuture.supplyAsync(() -> {
+            LoudnessAnalyzer analyzer = new LoudnessAnalyzer(Path.of(LOUDNESS_CACHE_FILE));
+            return Map.entry(analyzer, loadPlaylist());
+        }).thenAccept(loaded -> Platform.runLater(() -> {
+            loudness = loaded.getKey();
+            playlist.addAll(loaded.getValue());
+            playlistLoaded = true;
+            loudness.analyzeAll(playlist.files());
+            updateControlsState();
+            if (!pendingCommands.isEmpty()) {
+                applyCommands(List.copyOf(pendingCommands));
+                pendingCommands.clear();
+            }
+            StartupTimeline.mark(StartupTimeline.PLAYLIST_LOADED);
+
+            // Тренировочный запуск для архива CDS (профиль cds в pom.xml)
+            if (Boolean.getBoolean("visualizer.exitAfterStartup")) Platform.exit();
+        }));
+    }
+
+    @Override
+    public void stop() {
+        if (singleInstance != null) singleInstance.close();
+        controller.close();
+        if (spectrumReplay != null) spectrumReplay.interrupt();
+        if (loudness != null) loudness.shutdown();
+        if (spectrumRecorder != null) {
+            try {
+                spectrumRecorder.close();
+            } catch (IOException e) {
+                System.err.println("Failed to finish spectrum recording: " + e.getMessage());
+            }
+        }
     }
 
     /* ================= HOTKEYS ================= */
@@ -247,7 +350,7 @@ public class MainApp extends Application {
         // Всегда запрашиваем фокус при нажатии любой клавиши
         root.requestFocus();
 
-        if (mediaPlayer == null || playlist.isEmpty()) return;
+        if (player == null || playlist.isEmpty()) return;
 
         switch (e.getCode()) {
             case SPACE:
@@ -263,20 +366,18 @@ public class MainApp extends Application {
                     playNext();
                 } else {
                     // Перемотка вперед на 10 секунд
-                    if (mediaPlayer != null) {
-                        Duration currentTime = mediaPlayer.getCurrentTime();
+                    if (player != null) {
+                        Duration currentTime = player.getCurrentTime();
                         Duration newTime = currentTime.add(Duration.seconds(10));
-                        Duration totalDuration = mediaPlayer.getTotalDuration();
+                        Duration totalDuration = player.getTotalDuration();
 
                         if (newTime.lessThanOrEqualTo(totalDuration)) {
-                            mediaPlayer.seek(newTime);
-                            progressSlider.setValue(newTime.toMillis());
-                            timeLabel.setText(format(newTime) + " / " + format(totalDuration));
+                            seek(newTime);
+                            postPosition(newTime);
                         } else {
                             // Если дальше конца, то в конец
-                            mediaPlayer.seek(totalDuration);
-                            progressSlider.setValue(totalDuration.toMillis());
-                            timeLabel.setText(format(totalDuration) + " / " + format(totalDuration));
+                            seek(totalDuration);
+                            postPosition(totalDuration);
                         }
                     }
                 }
@@ -290,19 +391,17 @@ public class MainApp extends Application {
                     playPrevious();
                 } else {
                     // Перемотка назад на 10 секунд
-                    if (mediaPlayer != null) {
-                        Duration currentTime = mediaPlayer.getCurrentTime();
+                    if (player != null) {
+                        Duration currentTime = player.getCurrentTime();
                         Duration newTime = currentTime.subtract(Duration.seconds(10));
 
                         if (newTime.greaterThanOrEqualTo(Duration.ZERO)) {
-                            mediaPlayer.seek(newTime);
-                            progressSlider.setValue(newTime.toMillis());
-                            timeLabel.setText(format(newTime) + " / " + format(mediaPlayer.getTotalDuration()));
+                            seek(newTime);
+                            postPosition(newTime);
                         } else {
                             // Если меньше 0, то в начало
-                            mediaPlayer.seek(Duration.ZERO);
-                            progressSlider.setValue(0);
-                            timeLabel.setText("00:00 / " + format(mediaPlayer.getTotalDuration()));
+                            seek(Duration.ZERO);
+                            postPosition(Duration.ZERO);
                         }
                     }
                 }
@@ -311,11 +410,11 @@ public class MainApp extends Application {
 
             case UP:
                 // Стрелка вверх - увеличить громкость
-                if (mediaPlayer != null) {
+                if (player != null) {
                     double currentVolume = volumeSlider.getValue();
                     double newVolume = Math.min(1.0, currentVolume + 0.1);
                     volumeSlider.setValue(newVolume);
-                    mediaPlayer.setVolume(newVolume);
+                    applyVolume(newVolume);
 
                     if (muted && newVolume > 0) {
                         muted = false;
@@ -327,11 +426,11 @@ public class MainApp extends Application {
 
             case DOWN:
                 // Стрелка вниз - уменьшить громкость
-                if (mediaPlayer != null) {
+                if (player != null) {
                     double currentVolume = volumeSlider.getValue();
                     double newVolume = Math.max(0.0, currentVolume - 0.1);
                     volumeSlider.setValue(newVolume);
-                    mediaPlayer.setVolume(newVolume);
+                    applyVolume(newVolume);
 
                     if (newVolume == 0 && !muted) {
                         muted = true;
@@ -343,16 +442,16 @@ public class MainApp extends Application {
 
             case M:
                 // M - mute/unmute
-                if (mediaPlayer != null) {
+                if (player != null) {
                     if (!muted) {
                         lastVolume = volumeSlider.getValue();
                         volumeSlider.setValue(0);
-                        mediaPlayer.setVolume(0);
+                        applyVolume(0);
                         volumeBtn.setText("🔇");
                         muted = true;
                     } else {
                         volumeSlider.setValue(lastVolume);
-                        mediaPlayer.setVolume(lastVolume);
+                        applyVolume(lastVolume);
                         volumeBtn.setText("🔊");
                         muted = false;
                     }
@@ -374,10 +473,9 @@ public class MainApp extends Application {
 
             case R:
                 // R - перезапустить текущий трек
-                if (mediaPlayer != null) {
-                    mediaPlayer.seek(Duration.ZERO);
-                    progressSlider.setValue(0);
-                    timeLabel.setText("00:00 / " + format(mediaPlayer.getTotalDuration()));
+                if (player != null) {
+                    seek(Duration.ZERO);
+                    postPosition(Duration.ZERO);
                 }
                 e.consume();
                 break;
@@ -386,206 +484,26 @@ public class MainApp extends Application {
 
     /* ================= THEME MANAGEMENT ================= */
     private void toggleTheme() {
-        if (isThemeTransitioning) return; // Не запускать новый переход, пока старый не завершен
-
-        isThemeTransitioning = true;
-
-        // Создаем плавный fade out для текущей темы
-        FadeTransition fadeOut = new FadeTransition(Duration.millis(200), glass);
-        fadeOut.setFromValue(1.0);
-        fadeOut.setToValue(0.3);
-
-        fadeOut.setOnFinished(e -> {
-            // Меняем тему
-            darkTheme = !darkTheme;
-            if (darkTheme) {
-                applyDarkTheme();
-                themeBtn.setText("🌙");
-            } else {
-                applyLightTheme();
-                themeBtn.setText("☀");
-            }
-
-            // Плавный fade in для новой темы
-            FadeTransition fadeIn = new FadeTransition(Duration.millis(300), glass);
-            fadeIn.setFromValue(0.3);
-            fadeIn.setToValue(1.0);
-
-            fadeIn.setOnFinished(event -> {
-                isThemeTransitioning = false;
-            });
-
-            fadeIn.play();
-        });
-
-        fadeOut.play();
-    }
-
-    private void applyDarkTheme() {
-        // Плавный переход для фона
-        Background newBackground = new Background(new BackgroundFill(
-                new LinearGradient(
-                        0,0,1,1,true,CycleMethod.NO_CYCLE,
-                        new Stop(0, Color.web("#0f2027")),
-                        new Stop(0.5, Color.web("#16222a")),
-                        new Stop(1, Color.web("#000000"))
-                ),
-                CornerRadii.EMPTY, Insets.EMPTY
-        ));
-
-        root.setBackground(newBackground);
-
-        // Плавный переход для стеклянной панели
-        glass.setStyle("-fx-background-color:rgba(20,20,20,0.55); -fx-background-radius:18;");
-
-        // Плавный переход для меток
-        FadeTransition labelTransition = new FadeTransition(Duration.millis(150), nowPlayingLabel);
-        labelTransition.setFromValue(0.7);
-        labelTransition.setToValue(1.0);
-        labelTransition.play();
-
-        nowPlayingLabel.setStyle(
-                "-fx-text-fill:#E0E0E0;" +
-                        "-fx-background-color:rgba(255,255,255,0.14);" +
-                        "-fx-padding:6 14;" +
-                        "-fx-background-radius:8;"
-        );
-
-        FadeTransition timeTransition = new FadeTransition(Duration.millis(150), timeLabel);
-        timeTransition.setFromValue(0.7);
-        timeTransition.setToValue(1.0);
-        timeTransition.play();
-
-        timeLabel.setStyle("-fx-text-fill:#B0B0B0;");
-
-        // Сохраняем текущую прозрачность emptyLabel перед сменой темы
-        double currentOpacity = emptyLabel.getOpacity();
-
-        // Устанавливаем только стиль цвета, не меняем прозрачность
-        emptyLabel.setStyle("-fx-text-fill:#AAAAAA; -fx-font-size:16px;");
-        // Восстанавливаем прозрачность
-        emptyLabel.setOpacity(currentOpacity);
-
-        // Плавный переход для слайдеров
-        FadeTransition sliderTransition1 = new FadeTransition(Duration.millis(150), progressSlider);
-        sliderTransition1.setFromValue(0.7);
-        sliderTransition1.setToValue(1.0);
-        sliderTransition1.play();
-
-        FadeTransition sliderTransition2 = new FadeTransition(Duration.millis(150), volumeSlider);
-        sliderTransition2.setFromValue(0.7);
-        sliderTransition2.setToValue(1.0);
-        sliderTransition2.play();
-
-        progressSlider.setStyle("-fx-control-inner-background: #333;");
-        volumeSlider.setStyle("-fx-control-inner-background: #333;");
-
-        // Плавный переход для кнопок
-        updateButtonStylesWithAnimation();
-    }
-
-    private void applyLightTheme() {
-        // Плавный переход для фона
-        Background newBackground = new Background(new BackgroundFill(
-                new LinearGradient(
-                        0,0,1,1,true,CycleMethod.NO_CYCLE,
-                        new Stop(0, Color.web("#f5f7fa")),
-                        new Stop(0.5, Color.web("#c3cfe2")),
-                        new Stop(1, Color.web("#e4e8f0"))
-                ),
-                CornerRadii.EMPTY, Insets.EMPTY
-        ));
-
-        root.setBackground(newBackground);
-
-        // Плавный переход для стеклянной панели
-        glass.setStyle("-fx-background-color:rgba(255,255,255,0.75); -fx-background-radius:18;");
-
-        // Плавный переход для меток
-        FadeTransition labelTransition = new FadeTransition(Duration.millis(150), nowPlayingLabel);
-        labelTransition.setFromValue(0.7);
-        labelTransition.setToValue(1.0);
-        labelTransition.play();
-
-        nowPlayingLabel.setStyle(
-                "-fx-text-fill:#333333;" +
-                        "-fx-background-color:rgba(0,0,0,0.08);" +
-                        "-fx-padding:6 14;" +
-                        "-fx-background-radius:8;"
-        );
-
-        FadeTransition timeTransition = new FadeTransition(Duration.millis(150), timeLabel);
-        timeTransition.setFromValue(0.7);
-        timeTransition.setToValue(1.0);
-        timeTransition.play();
-
-        timeLabel.setStyle("-fx-text-fill:#666666;");
-
-        // Сохраняем текущую прозрачность emptyLabel перед сменой темы
-        double currentOpacity = emptyLabel.getOpacity();
+        if (themes.isTransitioning()) return; // Не запускать новый переход, пока старый не завершен
 
-        // Устанавливаем только стиль цвета, не меняем прозрачность
-        emptyLabel.setStyle("-fx-text-fill:#777777; -fx-font-size:16px;");
-        // Восстанавливаем прозрачность
-        emptyLabel.setOpacity(currentOpacity);
+        Theme next = themes.getTheme().next();
+        themes.switchTo(next);
+        themeBtn.setText(next.icon);
 
-        // Плавный переход для слайдеров
-        FadeTransition sliderTransition1 = new FadeTransition(Duration.millis(150), progressSlider);
-        sliderTransition1.setFromValue(0.7);
-        sliderTransition1.setToValue(1.0);
-        sliderTransition1.play();
-
-        FadeTransition sliderTransition2 = new FadeTransition(Duration.millis(150), volumeSlider);
-        sliderTransition2.setFromValue(0.7);
-        sliderTransition2.setToValue(1.0);
-        sliderTransition2.play();
-
-        progressSlider.setStyle("-fx-control-inner-background: #e0e0e0;");
-        volumeSlider.setStyle("-fx-control-inner-background: #e0e0e0;");
-
-        // Плавный переход для кнопок
-        updateButtonStylesWithAnimation();
-    }
-
-    private void updateButtonStylesWithAnimation() {
-        String buttonStyle;
-        if (darkTheme) {
-            buttonStyle = "-fx-background-color:rgba(255,255,255,0.14); -fx-text-fill:white; -fx-background-radius:10;";
-        } else {
-            buttonStyle = "-fx-background-color:rgba(0,0,0,0.08); -fx-text-fill:#333333; -fx-background-radius:10;";
-        }
-
-        // Плавный переход для всех кнопок
-        Button[] buttons = {prevBtn, playBtn, nextBtn, playlistBtn, themeBtn, volumeBtn};
-
-        for (Button button : buttons) {
-            FadeTransition fade = new FadeTransition(Duration.millis(150), button);
-            fade.setFromValue(0.7);
-            fade.setToValue(1.0);
-            fade.setOnFinished(e -> button.setStyle(buttonStyle));
-            fade.play();
+        // Палитра визуализатора следует за темой, пока пользователь не выбрал свою
+        if (!customPalette) {
+            colorLow = next.colorLow;
+            colorHigh = next.colorHigh;
+            refreshBarsColor();
         }
     }
 
-    private void updateButtonStyles() {
-        String buttonStyle;
-        if (darkTheme) {
-            buttonStyle = "-fx-background-color:rgba(255,255,255,0.14); -fx-text-fill:white; -fx-background-radius:10;";
-        } else {
-            buttonStyle = "-fx-background-color:rgba(0,0,0,0.08); -fx-text-fill:#333333; -fx-background-radius:10;";
-        }
-
-        // Обновляем стили всех основных кнопок
-        prevBtn.setStyle(buttonStyle);
-        playBtn.setStyle(buttonStyle);
-        nextBtn.setStyle(buttonStyle);
-        playlistBtn.setStyle(buttonStyle);
-        themeBtn.setStyle(buttonStyle);
-        volumeBtn.setStyle(buttonStyle);
-    }
-
     /* ================= STATE ================= */
     private void updateControlsState() {
+        controlsFlag.mark();
+    }
+
+    private void applyControlsState() {
         boolean hasPlaylist = !playlist.isEmpty();
 
         // Кнопки плеера должны быть неактивны только когда нет плейлиста
@@ -593,154 +511,279 @@ public class MainApp extends Application {
         prevBtn.setDisable(!hasPlaylist);
         nextBtn.setDisable(!hasPlaylist);
 
-        // Кнопка плейлиста должна быть всегда активна!
-        playlistBtn.setDisable(false);
+        // Кнопка плейлиста должна быть всегда активна, как только плейлист прочитан с диска!
+        playlistBtn.setDisable(!playlistLoaded);
 
         // Ползунок должен быть активен всегда, когда есть плейлист
         progressSlider.setDisable(!hasPlaylist);
 
         // Делаем метку "Add music..." полностью прозрачной когда есть плейлист
-        FadeTransition ft = new FadeTransition(Duration.millis(300), emptyLabel);
-        ft.setToValue(hasPlaylist ? 0 : 1);
-        ft.play();
+        // (анимации переиспользуются и запускаются только при смене состояния)
+        double emptyTarget = hasPlaylist || spectrumReplay != null ? 0 : 1;
+        boolean settled = emptyLabelFade.getToValue() == emptyTarget
+                && (emptyLabelFade.getStatus() == Animation.Status.RUNNING || emptyLabel.getOpacity() == emptyTarget);
+        if (!settled) {
+            emptyLabelFade.stop();
+            emptyLabelFade.setToValue(emptyTarget);
+            emptyLabelFade.playFromStart();
+        }
 
-        // Делаем визуализатор видимым когда есть плейлист
-        visualizer.setVisible(hasPlaylist);
+        // Делаем визуализатор видимым когда есть плейлист (или идёт воспроизведение записи спектра)
+        boolean showVisualizer = hasPlaylist || spectrumReplay != null;
+        visualizer.setVisible(showVisualizer);
 
         // Также делаем визуализатор непрозрачным когда есть плейлист
-        if (hasPlaylist) {
-            FadeTransition visualizerFade = new FadeTransition(Duration.millis(300), visualizer);
-            visualizerFade.setToValue(1.0);
-            visualizerFade.play();
+        if (showVisualizer) {
+            if (visualizer.getOpacity() < 1 && visualizerFade.getStatus() != Animation.Status.RUNNING
+                    && trackIntroFade.getStatus() != Animation.Status.RUNNING) {
+                visualizerFade.playFromStart();
+            }
         } else {
+            visualizerFade.stop();
+            trackIntroFade.stop();
             visualizer.setOpacity(0);
         }
     }
 
+    /* ================= PROGRESS / TIME ================= */
+    private void postPosition(Duration time) {
+        progressSlot.post(time.toMillis());
+        postTimeLabel(time);
+    }
+
+    private void postTimeLabel(Duration time) {
+        shownSeconds = time.toSeconds();
+        timeLabelFlag.mark();
+    }
+
+    private void renderTimeLabel() {
+        double total = player != null ? player.getTotalDuration().toSeconds() : 0;
+        timeLabel.setText(timeFormatter.format(shownSeconds, total));
+    }
+
     /* ================= PLAYER ================= */
-    private void togglePlay() {
-        if (mediaPlayer == null) {
-            playTrack(currentIndex >= 0 ? currentIndex : 0);
-            return;
-        }
+    // Переходы между треками и состояниями — в PlayerController, здесь только реакция UI
+    private void setupPlayer() {
+        controller.setListener(new PlayerController.Listener() {
+            @Override
+            public void trackOpened(File file, PlaybackBackend backend) {
+                player = backend;
+                governor.restartTiming();
+                applyLoudness(file);
+                nowPlayingLabel.setText(file.getName());
+
+                player.currentTimeProperty().addListener((o,a,b)->{
+                    if (!isDragging) postPosition(b);
+                    // onReady наступает до начала звука; первый звук — когда позиция сдвинулась при игре
+                    if (!firstAudioHeard && b.greaterThan(Duration.ZERO)
+                            && controller.state() == PlayerController.State.PLAYING) {
+                        firstAudioHeard = true;
+                        StartupTimeline.mark(StartupTimeline.FIRST_AUDIO);
+                    }
+                });
 
-        if (mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING) {
-            mediaPlayer.pause();
-            playBtn.setText("▶");
-        } else {
-            mediaPlayer.play();
-            playBtn.setText("⏸");
-        }
+                setupSpectrum();
+            }
+
+            @Override
+            public void trackReady(PlaybackBackend backend) {
+                progressSlider.setMax(backend.getTotalDuration().toMillis());
+
+                // Плавное появление визуализатора
+                visualizerFade.stop();
+                trackIntroFade.playFromStart();
+
+                // Сбрасываем значение ползунка при загрузке новой песни
+                postPosition(Duration.ZERO);
+            }
+
+            @Override
+            public void stateChanged(PlayerController.State state) {
+                if (state != PlayerController.State.PLAYING) governor.restartTiming();
+                if (state == PlayerController.State.IDLE) player = null; // трек закрыт или не открылся
+                if (state == PlayerController.State.PLAYING) {
+                    playBtn.setText("⏸");
+                } else if (state != PlayerController.State.LOADING) {
+                    playBtn.setText("▶");
+                }
+            }
+        });
+    }
+
+    private void togglePlay() {
+        controller.toggle();
     }
 
     private void playTrack(int index) {
-        if (playlist.isEmpty()) return;
-        if (index < 0 || index >= playlist.size()) index = 0;
+        controller.play(index);
+    }
 
-        currentIndex = index;
+    // Поправка громкости трека: из кэша сразу, иначе — когда закончится фоновый анализ
+    private void applyLoudness(File file) {
+        LoudnessAnalyzer.Loudness known = loudness.cached(file);
+        setTrackLoudness(known != null ? known : LoudnessAnalyzer.Loudness.UNKNOWN);
 
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.dispose();
+        if (known == null) {
+            loudness.analyze(file).thenAccept(l -> Platform.runLater(() -> {
+                if (playlist.isCurrent(file)) {
+                    setTrackLoudness(l);
+                }
+            }));
         }
+    }
 
-        File file = playlist.get(index);
-        mediaPlayer = new MediaPlayer(new Media(file.toURI().toString()));
-        mediaPlayer.setVolume(volumeSlider.getValue());
-        nowPlayingLabel.setText(file.getName());
-
-        mediaPlayer.setOnReady(() -> {
-            progressSlider.setMax(mediaPlayer.getTotalDuration().toMillis());
-            mediaPlayer.play();
-            playBtn.setText("⏸");
-
-            // Плавное появление визуализатора
-            FadeTransition ft = new FadeTransition(Duration.millis(400), visualizer);
-            ft.setFromValue(0);
-            ft.setToValue(1);
-            ft.play();
-
-            // Сбрасываем значение ползунка при загрузке новой песни
-            progressSlider.setValue(0);
-            timeLabel.setText("00:00 / " + format(mediaPlayer.getTotalDuration()));
-        });
+    private void setTrackLoudness(LoudnessAnalyzer.Loudness l) {
+        // MediaPlayer не умеет усиливать выше 1.0, поэтому звук выравнивается с запасом
+        // (всё тише настолько, насколько нужно самому тихому треку плейлиста, но не больше
+        // loudnessHeadroom), а визуализатор нормализуется полностью
+        double headroom = loudness.headroomDb(playlist.files(), loudnessTarget, loudnessHeadroom);
+        trackGain = l.playbackGain(loudnessTarget, headroom);
+        spectrumGainDb = Math.max(-20, Math.min(20, l.gainDb(loudnessTarget)));
+        if (player != null) applyVolume(volumeSlider.getValue());
+    }
+
+    // Перемотка рвёт поток кадров спектра — регулятор не должен принять разрыв за перегрузку
+    private void seek(Duration time) {
+        governor.restartTiming();
+        player.seek(time);
+    }
+
+    private void applyVolume(double volume) {
+        player.setVolume(volume * trackGain);
+    }
 
-        mediaPlayer.currentTimeProperty().addListener((o,a,b)->{
-            if (!isDragging) {
-                progressSlider.setValue(b.toMillis());
-                timeLabel.setText(format(b)+" / "+format(mediaPlayer.getTotalDuration()));
+    /* ================= REMOTE COMMANDS ================= */
+    // Пачка команд из SingleInstance: плейлист сохраняется и перерисовывается один раз
+    private void applyCommands(List<String> batch) {
+        if (batch.contains(SingleInstance.SHOW)) {
+            stage.setIconified(false);
+            stage.show();
+            stage.toFront();
+        }
+        if (!playlistLoaded) {
+            pendingCommands.addAll(batch);
+            return;
+        }
+
+        List<File> added = new ArrayList<>();
+        boolean play = false, next = false;
+        for (String cmd : batch) {
+            if (cmd.startsWith(SingleInstance.ENQUEUE)) {
+                File f = new File(cmd.substring(SingleInstance.ENQUEUE.length()));
+                if (f.isFile()) added.add(f);
+            } else if (cmd.equals(SingleInstance.PLAY)) {
+                play = true;
+            } else if (cmd.equals(SingleInstance.NEXT)) {
+                next = true;
             }
-        });
+        }
+
+        int first = playlist.size();
+        if (!added.isEmpty()) {
+            playlist.addAll(added);
+            savePlaylist();
+            loudness.analyzeAll(added);
+            if (playlistView != null) refreshPlaylistView(playlistView);
+            updateControlsState();
+        }
 
-        setupSpectrum();
+        if (play && !added.isEmpty()) {
+            playTrack(first);
+        } else if (next && !playlist.isEmpty()) {
+            playNext();
+        } else if (play && controller.state() != PlayerController.State.PLAYING) {
+            togglePlay();
+        }
     }
 
     private void playNext() {
-        playTrack((currentIndex + 1) % playlist.size());
+        controller.next();
     }
 
     private void playPrevious() {
-        playTrack((currentIndex - 1 + playlist.size()) % playlist.size());
+        controller.previous();
     }
 
     /* ================= SPECTRUM ================= */
     private void setupSpectrum() {
-        mediaPlayer.setAudioSpectrumInterval(0.045);
-        mediaPlayer.setAudioSpectrumNumBands(BANDS);
-        mediaPlayer.setAudioSpectrumThreshold(-60);
+        player.setAudioSpectrumThreshold(SPECTRUM_THRESHOLD);
+        applySpectrumSettings();
+    }
 
-        DropShadow glow = new DropShadow(12, Color.rgb(255,255,255,0.18));
+    // Интервал и число полос — от регулятора; без слушателя плеер не считает спектр вовсе
+    private void applySpectrumSettings() {
+        if (player == null) return;
 
-        mediaPlayer.setAudioSpectrumListener((t,d,mags,ph)->{
-            double sum = 0;
-            for (double m : mags) sum += (m + 60);
-            double energy = Math.min(1.0, sum / (mags.length * 60));
+        AdaptiveGovernor.Level level = governor.getLevel();
+        player.setAudioSpectrumInterval(level.interval());
+        player.setAudioSpectrumNumBands(level.bands());
+
+        if (governor.isSuspended()) {
+            player.setAudioSpectrumListener(null);
+        } else {
+            player.setAudioSpectrumListener(spectrumRecorder != null
+                    ? spectrumRecorder.tee(spectrumListener)
+                    : spectrumListener);
+        }
+    }
 
-            Color base = colorLow.interpolate(colorHigh, energy);
-            double center = (BANDS - 1) / 2.0;
+    private void updateSpectrum(double t, double d, float[] mags, float[] ph) {
+        if (governor.isSuspended()) return;
+        long frameStart = governor.beginFrame();
 
-            for (int i = 0; i < BANDS; i++) {
-                double dist = Math.abs(i - center) / center;
-                int idx = Math.min((int)(dist * (BANDS / 2)), mags.length - 1);
+        spectrum.process(mags, spectrumGainDb);
+        if (spectrumBars != null) spectrumBars.render(colorLow, colorHigh);
 
-                double h = (mags[idx] + 60) * 3.2;
-                smoothedHeights[i] += (h - smoothedHeights[i]) * 0.18;
+        governor.endFrame(frameStart);
+    }
 
-                bars[i].setHeight(Math.max(6, smoothedHeights[i]));
-                bars[i].setFill(new Color(
-                        base.getRed(), base.getGreen(), base.getBlue(),
-                        Math.min(1, 0.4 + smoothedHeights[i] / 180)
-                ));
-                bars[i].setEffect(glow);
+    /* ================= SPECTRUM CAPTURE ================= */
+    // Запись спектра в файл и воспроизведение записи без звука — для бенчмарков и CI
+    private void setupSpectrumCapture() {
+        String recordFile = System.getProperty("visualizer.record");
+        if (recordFile != null) {
+            try {
+                spectrumRecorder = new SpectrumRecorder(Path.of(recordFile), SPECTRUM_THRESHOLD, true);
+            } catch (IOException e) {
+                System.err.println("Spectrum recording disabled: " + e.getMessage());
             }
-        });
+        }
+
+        String replayFile = System.getProperty("visualizer.replay");
+        if (replayFile != null) {
+            try {
+                SpectrumReplay replay = SpectrumReplay.open(Path.of(replayFile));
+                double speed = Double.parseDouble(System.getProperty("visualizer.replaySpeed", "1"));
+
+                spectrumReplay = replay.start(spectrumListener, speed, Platform::runLater);
+                updateControlsState();
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Spectrum replay failed: " + e.getMessage());
+            }
+        }
     }
 
     /* ================= COLOR UPDATE ================= */
     private void refreshBarsColor() {
-        double max = 0;
-        for (double h : smoothedHeights) if (h > max) max = h;
-
-        double energy = Math.min(1.0, max / 180);
-        Color base = colorLow.interpolate(colorHigh, energy);
-        DropShadow glow = new DropShadow(12, Color.rgb(255,255,255,0.18));
-
-        for (int i = 0; i < BANDS; i++) {
-            bars[i].setFill(new Color(
-                    base.getRed(),
-                    base.getGreen(),
-                    base.getBlue(),
-                    Math.min(1, 0.4 + smoothedHeights[i] / 180)
-            ));
-            bars[i].setEffect(glow);
-        }
+        if (spectrumBars != null) spectrumBars.recolor(colorLow, colorHigh); // Полосы ещё не построены
     }
 
     /* ================= PLAYLIST ================= */
     private void showPlaylistWindow() {
+        if (playlistWindow == null) playlistWindow = createPlaylistWindow();
+
+        refreshPlaylistView(playlistView);
+        if (playlistWindow.isShowing()) {
+            playlistWindow.toFront();
+        } else {
+            playlistWindow.show();
+        }
+    }
+
+    private Stage createPlaylistWindow() {
         Stage win = new Stage();
         ListView<String> list = new ListView<>();
-        refreshPlaylistView(list);
+        playlistView = list;
 
         list.setOnMouseClicked(e -> {
             if (e.getClickCount() == 2) {
@@ -764,9 +807,10 @@ public class MainApp extends Application {
             var files = fc.showOpenMultipleDialog(win);
             if (files == null || files.isEmpty()) return;
 
-            playlist.addAll(files);
+            int first = playlist.addAll(files);
             savePlaylist();
-            playTrack(playlist.size() - files.size());
+            loudness.analyzeAll(files);
+            playTrack(first);
             refreshPlaylistView(list);
             updateControlsState();
         });
@@ -789,20 +833,19 @@ public class MainApp extends Application {
 
         win.setScene(new Scene(root, 320, 420));
         win.initModality(Modality.APPLICATION_MODAL);
-        win.show();
+        return win;
     }
 
     /* ================= HELPERS ================= */
     private void refreshPlaylistView(ListView<String> list) {
-        list.getItems().clear();
-        for (File f : playlist) list.getItems().add(f.getName());
+        list.getItems().setAll(playlist.names());
     }
 
     private Button createButton(String text) {
         Button b = new Button(text);
         b.setPrefSize(40, 36);
         b.setCursor(Cursor.HAND);
-        b.setStyle("-fx-background-color:rgba(255,255,255,0.14); -fx-text-fill:white; -fx-background-radius:10;");
+        b.getStyleClass().add("control-button");
         return b;
     }
 
@@ -810,11 +853,14 @@ public class MainApp extends Application {
         Button b = new Button();
         b.setPrefSize(26, 26);
         b.setCursor(Cursor.HAND);
-        b.setStyle("-fx-background-radius:50%; -fx-background-color:linear-gradient(to bottom right,"
+        b.getStyleClass().add("color-button");
+        // Градиент — собственные данные кнопки, задаётся один раз при создании
+        b.setStyle("-fx-background-color:linear-gradient(to bottom right,"
                 + toHex(low) + "," + toHex(high) + ");");
         b.setOnAction(e -> {
             colorLow = low;
             colorHigh = high;
+            customPalette = true;
             refreshBarsColor(); // Теперь цвет меняется сразу при нажатии на кнопку
         });
         return b;
@@ -828,29 +874,34 @@ public class MainApp extends Application {
     }
 
     private void savePlaylist() {
-        try (PrintWriter w = new PrintWriter(new FileWriter(PLAYLIST_FILE))) {
-            for (File f : playlist) w.println(f.getAbsolutePath());
-        } catch (Exception ignored) {}
-    }
-
-    private void loadPlaylist() {
-        File f = new File(PLAYLIST_FILE);
-        if (!f.exists()) return;
-        try (BufferedReader r = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                File a = new File(line);
-                if (a.exists()) playlist.add(a);
-            }
-        } catch (Exception ignored) {}
+        try {
+            playlistStore.save(playlist.files());
+        } catch (IOException e) {
+            System.err.println("Failed to save playlist: " + e.getMessage());
+        }
+    }
+
+    // Вызывается в фоновом потоке: только читает файл, плейлист меняется уже в FX-потоке
+    private List<File> loadPlaylist() {
+        try {
+            List<File> loaded = playlistStore.load();
+            loaded.removeIf(f -> !f.exists());
+            return loaded;
+        } catch (IOException e) {
+            System.err.println("Failed to load playlist: " + e.getMessage());
+            return new ArrayList<>();
+        }
     }
 
-    private String format(Duration d) {
-        int s = (int) d.toSeconds();
-        return String.format("%02d:%02d", s/60, s%60);
+    /** Вызывается из {@link Launcher}, когда сокет уже занят этим процессом (или режим выключен). */
+    static void launch(SingleInstance instance, String[] args) {
+        singleInstance = instance;
+        Application.launch(MainApp.class, args);
     }
 
+    // Точка входа — Launcher. При запуске прямо MainApp (из IDE) лаунчер Java уже поднял JavaFX,
+    // и после передачи команд его нужно погасить, иначе FX-поток не даст процессу завершиться
     public static void main(String[] args) {
-        launch();
+        if (!Launcher.start(args)) Platform.exit();
     }
 }
\ No newline at end of file
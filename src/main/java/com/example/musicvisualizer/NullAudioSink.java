@@ -0,0 +1,107 @@
+package com.example.musicvisualizer;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Приёмник без звукового устройства: «проигрывает» данные в реальном темпе по системным часам.
+ * Нужен для headless-тестов и бенчмарков бэкенда и анализа PCM.
+ */
+final class NullAudioSink implements AudioSink {
+
+    private float frameRate;
+    private int frameSize;
+    private int bufferFrames;
+
+    private long framesWritten;
+    private long startNanos;
+    private long startFrame;
+    private boolean running;
+    private boolean closed;
+    private int flushes; // flush() прерывает write(), начатую до него
+
+    @Override
+    public void open(AudioFormat format, int bufferBytes) {
+        frameRate = format.getFrameRate();
+        frameSize = format.getFrameSize();
+        bufferFrames = bufferBytes / frameSize;
+    }
+
+    /**
+     * Как {@code SourceDataLine.write}: ждёт места в буфере, а остановленная линия его не освобождает,
+     * поэтому на паузе запись висит, пока линию не запустят, не сбросят или не закроют.
+     */
+    @Override
+    public synchronized int write(byte[] data, int offset, int length) {
+        int frames = length / frameSize;
+        int flushed = flushes;
+        long queued;
+        while ((queued = framesWritten - getFramePosition()) > 0 && queued + frames > bufferFrames) {
+            if (closed || flushes != flushed) return 0;
+            try {
+                wait(running ? Math.max(1, (long) ((queued + frames - bufferFrames) * 1000 / frameRate)) : 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        if (closed || flushes != flushed) return 0;
+        framesWritten += frames;
+        return length;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        startNanos = System.nanoTime();
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        startFrame = getFramePosition();
+        running = false;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void flush() {
+        framesWritten = 0;
+        startFrame = 0;
+        startNanos = System.nanoTime();
+        flushes++;
+        notifyAll();
+    }
+
+    /** Ждёт, пока буфер доиграет; как настоящая линия, перестаёт ждать при stop и flush. */
+    @Override
+    public synchronized void drain() {
+        long remaining;
+        while (running && (remaining = framesWritten - getFramePosition()) > 0) {
+            try {
+                wait(Math.max(1, (long) (remaining * 1000 / frameRate)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getFramePosition() {
+        if (!running) return startFrame;
+        long played = startFrame + (long) ((System.nanoTime() - startNanos) / 1e9 * frameRate);
+        return Math.min(played, framesWritten);
+    }
+
+    @Override
+    public void setVolume(double volume) {
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
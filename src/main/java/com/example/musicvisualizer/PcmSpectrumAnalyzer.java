@@ -0,0 +1,205 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.media.AudioSpectrumListener;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Спектр из PCM, отвечающий тому же контракту, что и спектр JavaFX {@code MediaPlayer}:
+ * {@code numBands} полос равной ширины от 0 до частоты Найквиста, амплитуды в дБ не ниже порога,
+ * обновление раз в {@code interval} секунд звука. Считается в потоке декодирования,
+ * слушатель вызывается через переданный executor.
+ * <p>
+ * Декодер опережает звук на объём буфера вывода, поэтому кадр отдаётся не сразу,
+ * а когда позиция воспроизведения дойдёт до его конца.
+ */
+final class PcmSpectrumAnalyzer implements SampledAudioBackend.PcmTap {
+
+    private static final int MIN_FFT = 1024, MAX_FFT = 8192;
+
+    // Общий таймер отложенной отдачи кадров для всех треков
+    private static final ScheduledExecutorService DELAY = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spectrum-delay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Executor dispatcher;
+    private final LongSupplier playbackFrame;
+    private volatile int generation; // меняется при перемотке: отложенные кадры старого места не показываются
+
+    private volatile AudioSpectrumListener listener;
+    private volatile double interval = 0.1;
+    private volatile int bands = 128;
+    private volatile int threshold = -60;
+
+    // Кольцевой буфер моно-сэмплов и рабочие массивы FFT — только для потока декодирования
+    private final double[] ring = new double[MAX_FFT];
+    private int ringPos;
+    private double[] re = new double[0], im = new double[0], window = new double[0];
+    private double windowSum;
+    private long framesSinceUpdate;
+
+    /** playbackFrame — номер кадра трека, который сейчас звучит. */
+    PcmSpectrumAnalyzer(Executor dispatcher, LongSupplier playbackFrame) {
+        this.dispatcher = dispatcher;
+        this.playbackFrame = playbackFrame;
+    }
+
+    /** Сброс после перемотки: ещё не показанные кадры отбрасываются. */
+    void reset() {
+        generation++;
+        framesSinceUpdate = 0;
+    }
+
+    void setListener(AudioSpectrumListener listener) {
+        this.listener = listener;
+    }
+
+    void setInterval(double interval) {
+        this.interval = interval;
+    }
+
+    void setBands(int bands) {
+        this.bands = Math.max(2, bands);
+    }
+
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void onPcm(byte[] data, int offset, int length, AudioFormat format, long startFrame) {
+        AudioSpectrumListener l = listener;
+        if (l == null) return;
+
+        int channels = format.getChannels();
+        int sampleBytes = format.getFrameSize() / channels;
+        double rate = format.getFrameRate();
+        long updateFrames = Math.max(1, (long) (interval * rate));
+
+        for (int i = offset, frame = 0; i + format.getFrameSize() <= offset + length; i += format.getFrameSize(), frame++) {
+            double mono = 0;
+            for (int c = 0; c < channels; c++) mono += sample(data, i + c * sampleBytes, format);
+            ring[ringPos] = mono / channels;
+            ringPos = (ringPos + 1) & (MAX_FFT - 1);
+
+            if (++framesSinceUpdate >= updateFrames) {
+                framesSinceUpdate = 0;
+                long end = startFrame + frame + 1;
+                publish(l, end / rate, updateFrames / rate, (end - playbackFrame.getAsLong()) / rate);
+            }
+        }
+    }
+
+    private void publish(AudioSpectrumListener l, double timestamp, double duration, double ahead) {
+        int n = bands;
+        int size = MIN_FFT;
+        while (size < 2 * n && size < MAX_FFT) size <<= 1;
+        prepare(size);
+
+        for (int i = 0; i < size; i++) {
+            re[i] = ring[(ringPos - size + i) & (MAX_FFT - 1)] * window[i];
+            im[i] = 0;
+        }
+        fft(re, im);
+
+        float[] mags = new float[n];
+        float[] phases = new float[n];
+        int bins = size / 2;
+        for (int b = 0; b < n; b++) {
+            int from = b * bins / n, to = Math.max(from + 1, (b + 1) * bins / n);
+            double best = 0;
+            int bestBin = from;
+            for (int k = from; k < to; k++) {
+                double m = re[k] * re[k] + im[k] * im[k];
+                if (m > best) {
+                    best = m;
+                    bestBin = k;
+                }
+            }
+            double amplitude = 2 * Math.sqrt(best) / windowSum;
+            double db = amplitude > 0 ? 20 * Math.log10(amplitude) : threshold;
+            mags[b] = (float) Math.max(threshold, db);
+            phases[b] = (float) Math.atan2(im[bestBin], re[bestBin]);
+        }
+
+        int gen = generation;
+        Runnable deliver = () -> dispatcher.execute(() -> {
+            if (gen == generation && listener == l) l.spectrumDataUpdate(timestamp, duration, mags, phases);
+        });
+        if (ahead > 0) {
+            DELAY.schedule(deliver, (long) (ahead * 1e9), TimeUnit.NANOSECONDS);
+        } else {
+            deliver.run();
+        }
+    }
+
+    private void prepare(int size) {
+        if (re.length == size) return;
+        re = new double[size];
+        im = new double[size];
+        window = new double[size];
+        windowSum = 0;
+        for (int i = 0; i < size; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (size - 1));
+            windowSum += window[i];
+        }
+    }
+
+    /** Итеративное FFT по основанию 2 на месте. */
+    private static void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double ang = -2 * Math.PI / len;
+            double wr = Math.cos(ang), wi = Math.sin(ang);
+            for (int i = 0; i < n; i += len) {
+                double cr = 1, ci = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k, b = a + len / 2;
+                    double xr = re[b] * cr - im[b] * ci;
+                    double xi = re[b] * ci + im[b] * cr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                    double t = cr * wr - ci * wi;
+                    ci = cr * wi + ci * wr;
+                    cr = t;
+                }
+            }
+        }
+    }
+
+    /** Один сэмпл PCM в диапазоне [-1, 1]; поддерживаются 8/16/24/32 бит. */
+    static double sample(byte[] b, int i, AudioFormat fmt) {
+        int bytes = fmt.getSampleSizeInBits() / 8;
+        if (bytes == 1) {
+            return fmt.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED
+                    ? ((b[i] & 0xFF) - 128) / 128.0
+                    : b[i] / 128.0;
+        }
+        int v = 0;
+        if (fmt.isBigEndian()) {
+            for (int k = 0; k < bytes; k++) v = (v << 8) | (b[i + k] & 0xFF);
+        } else {
+            for (int k = bytes - 1; k >= 0; k--) v = (v << 8) | (b[i + k] & 0xFF);
+        }
+        int shift = 32 - bytes * 8;
+        return ((v << shift) >> shift) / (double) (1L << (bytes * 8 - 1));
+    }
+}
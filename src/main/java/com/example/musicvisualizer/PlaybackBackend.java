@@ -0,0 +1,75 @@
+package com.example.musicvisualizer;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Плеер одного трека, через который MainApp управляет воспроизведением.
+ * Методы повторяют нужную часть API {@link javafx.scene.media.MediaPlayer}, чтобы бэкенды
+ * были взаимозаменяемы. Все колбэки (onReady, currentTime, спектр) приходят в FX-потоке.
+ * <p>
+ * Бэкенд выбирается свойством {@code -Dvisualizer.backend}:
+ * <ul>
+ *   <li>{@code fx} (по умолчанию) — JavaFX {@code MediaPlayer};</li>
+ *   <li>{@code sampled} — javax.sound с потоковым декодированием, буфер {@code -Dvisualizer.bufferMs};</li>
+ *   <li>{@code null} — то же, но без звукового устройства (для headless-тестов).</li>
+ * </ul>
+ * Если javax.sound не умеет декодировать файл (например, MP3), используется {@code fx}.
+ */
+interface PlaybackBackend {
+
+    String BACKEND_PROPERTY = "visualizer.backend";
+    String BUFFER_PROPERTY = "visualizer.bufferMs";
+
+    static PlaybackBackend open(File file) {
+        String backend = System.getProperty(BACKEND_PROPERTY, "fx");
+        if (!backend.equals("fx")) {
+            int bufferMs = Integer.getInteger(BUFFER_PROPERTY, SampledAudioBackend.DEFAULT_BUFFER_MS);
+            AudioSink sink = backend.equals("null") ? new NullAudioSink() : new LineAudioSink();
+            try {
+                return new SampledAudioBackend(file, sink, bufferMs);
+            } catch (IOException e) {
+                System.err.println("Falling back to JavaFX media for " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        return new FxMediaBackend(file);
+    }
+
+    void setOnReady(Runnable onReady);
+
+    /** Ошибка открытия или воспроизведения, о которой бэкенд узнал уже после создания. */
+    void setOnError(Consumer<String> onError);
+
+    void play();
+
+    void pause();
+
+    void stop();
+
+    void dispose();
+
+    boolean isPlaying();
+
+    void seek(Duration time);
+
+    void setVolume(double volume);
+
+    Duration getCurrentTime();
+
+    Duration getTotalDuration();
+
+    ReadOnlyObjectProperty<Duration> currentTimeProperty();
+
+    void setAudioSpectrumInterval(double interval);
+
+    void setAudioSpectrumNumBands(int bands);
+
+    void setAudioSpectrumThreshold(int threshold);
+
+    void setAudioSpectrumListener(AudioSpectrumListener listener);
+}
@@ -0,0 +1,131 @@
+package com.example.musicvisualizer;
+
+import java.io.File;
+import java.util.function.Function;
+
+/**
+ * Состояние воспроизведения поверх {@link Playlist}: какой трек открыт и играет ли он.
+ * Бэкенд создаётся переданной фабрикой, поэтому переходы проверяются без звука и медиафайлов.
+ * Все методы вызываются в FX-потоке (там же приходит onReady бэкенда).
+ */
+final class PlayerController {
+
+    enum State { IDLE, LOADING, PLAYING, PAUSED }
+
+    /** Подписчик на смену трека и состояния; UI обновляется только отсюда. */
+    interface Listener {
+        /** Трек открыт, но ещё не готов — можно подписаться на его свойства. */
+        default void trackOpened(File file, PlaybackBackend backend) {}
+
+        /** Трек готов и запущен. */
+        default void trackReady(PlaybackBackend backend) {}
+
+        default void stateChanged(State state) {}
+    }
+
+    private static final Listener NONE = new Listener() {};
+
+    private final Playlist playlist;
+    private final Function<File, PlaybackBackend> factory;
+    private Listener listener = NONE;
+
+    private PlaybackBackend backend;
+    private State state = State.IDLE;
+
+    PlayerController(Playlist playlist, Function<File, PlaybackBackend> factory) {
+        this.playlist = playlist;
+        this.factory = factory;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener != null ? listener : NONE;
+    }
+
+    /** Бэкенд текущего трека или null (в том числе после неудачного открытия). */
+    PlaybackBackend backend() {
+        return backend;
+    }
+
+    State state() {
+        return state;
+    }
+
+    void play(int index) {
+        if (playlist.isEmpty()) return;
+        File file = playlist.get(playlist.select(index));
+
+        release();
+        PlaybackBackend opened;
+        try {
+            opened = factory.apply(file);
+        } catch (RuntimeException e) {
+            // Например, MediaException: файл пропал или кодек не поддерживается
+            fail(file, e.getMessage());
+            return;
+        }
+        backend = opened;
+        setState(State.LOADING);
+
+        opened.setOnReady(() -> {
+            if (backend != opened) return; // Пока грузился, уже переключили на другой трек
+            opened.play();
+            setState(State.PLAYING);
+            listener.trackReady(opened);
+        });
+        // MediaPlayer сообщает о большинстве ошибок асинхронно — без этого остались бы в LOADING
+        opened.setOnError(message -> {
+            if (backend == opened) fail(file, message);
+        });
+        listener.trackOpened(file, opened);
+    }
+
+    // Трек не открылся или сломался при воспроизведении: освобождаем его, toggle() попробует снова
+    private void fail(File file, String message) {
+        System.err.println("Cannot play " + file.getName() + ": " + message);
+        release();
+        setState(State.IDLE);
+    }
+
+    void toggle() {
+        switch (state) {
+            case IDLE -> play(Math.max(playlist.currentIndex(), 0));
+            case PLAYING -> {
+                backend.pause();
+                setState(State.PAUSED);
+            }
+            case PAUSED -> {
+                backend.play();
+                setState(State.PLAYING);
+            }
+            case LOADING -> { } // onReady сам запустит воспроизведение
+        }
+    }
+
+    void next() {
+        if (!playlist.isEmpty()) play(playlist.nextIndex());
+    }
+
+    void previous() {
+        if (!playlist.isEmpty()) play(playlist.previousIndex());
+    }
+
+    /** Останавливает и освобождает текущий трек. */
+    void close() {
+        release();
+        setState(State.IDLE);
+    }
+
+    private void release() {
+        if (backend == null) return;
+        PlaybackBackend old = backend;
+        backend = null;
+        old.stop();
+        old.dispose();
+    }
+
+    private void setState(State next) {
+        if (state == next) return;
+        state = next;
+        listener.stateChanged(next);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.musicvisualizer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Плейлист и текущий трек. Индекс текущего трека сдвигается вместе с удалениями,
+ * чтобы «следующий» оставался следующим после удаления строк выше.
+ */
+final class Playlist {
+
+    private final ArrayList<File> files = new ArrayList<>();
+    private final List<File> view = Collections.unmodifiableList(files);
+    private int current = -1;
+    private int removedAt = -1; // где стоял удалённый текущий трек: от него считаются следующий и предыдущий
+
+    int size() {
+        return files.size();
+    }
+
+    boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    File get(int index) {
+        return files.get(index);
+    }
+
+    /** Только для чтения; отражает последующие изменения. */
+    List<File> files() {
+        return view;
+    }
+
+    int currentIndex() {
+        return current;
+    }
+
+    /** Текущий трек или null. */
+    File current() {
+        return current >= 0 ? files.get(current) : null;
+    }
+
+    boolean isCurrent(File file) {
+        return current >= 0 && files.get(current).equals(file);
+    }
+
+    /** Добавляет файлы в конец; возвращает индекс первого добавленного. */
+    int addAll(Collection<File> added) {
+        int first = files.size();
+        files.addAll(added);
+        return first;
+    }
+
+    /**
+     * Удаляет трек. Если удалён текущий, текущего больше нет, но следующим станет трек,
+     * вставший на его место, а предыдущим — стоявший перед ним.
+     */
+    File remove(int index) {
+        File removed = files.remove(index);
+        if (index < current) {
+            current--;
+        } else if (index == current) {
+            current = -1;
+            removedAt = index;
+        } else if (current < 0 && index < removedAt) {
+            removedAt--;
+        }
+        return removed;
+    }
+
+    /** Делает трек текущим; индекс вне диапазона означает первый трек. Возвращает выбранный индекс. */
+    int select(int index) {
+        if (files.isEmpty()) return current = -1;
+        if (index < 0 || index >= files.size()) index = 0;
+        removedAt = -1;
+        return current = index;
+    }
+
+    int nextIndex() {
+        if (files.isEmpty()) return -1;
+        if (current < 0 && removedAt >= 0) return removedAt % files.size();
+        return (current + 1) % files.size();
+    }
+
+    int previousIndex() {
+        if (files.isEmpty()) return -1;
+        int from = current < 0 && removedAt >= 0 ? removedAt : current;
+        return from <= 0 ? files.size() - 1 : from - 1;
+    }
+
+    /** Имена файлов для списка в окне плейлиста. */
+    List<String> names() {
+        List<String> names = new ArrayList<>(files.size());
+        for (File f : files) names.add(f.getName());
+        return names;
+    }
+}
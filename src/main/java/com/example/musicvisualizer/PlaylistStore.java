@@ -0,0 +1,60 @@
+package com.example.musicvisualizer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хранилище плейлиста. Существование файлов не проверяется — это решает вызывающий,
+ * чтобы хранилище можно было гонять на синтетических путях.
+ */
+interface PlaylistStore {
+
+    List<File> load() throws IOException;
+
+    void save(List<File> files) throws IOException;
+
+    /** Текстовый файл: по одному абсолютному пути в строке, UTF-8. */
+    static PlaylistStore file(Path path) {
+        return new PlaylistStore() {
+            @Override
+            public List<File> load() throws IOException {
+                List<File> files = new ArrayList<>();
+                if (!Files.exists(path)) return files;
+                try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        if (!line.isEmpty()) files.add(new File(line));
+                    }
+                }
+                return files;
+            }
+
+            @Override
+            public void save(List<File> files) throws IOException {
+                // Пишем во временный файл и подменяем, чтобы сбой не оставил плейлист обрезанным
+                Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (File f : files) {
+                        w.write(f.getAbsolutePath());
+                        w.newLine();
+                    }
+                }
+                try {
+                    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // Файловая система не умеет атомарно переименовывать — хотя бы заменяем целиком
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        };
+    }
+}
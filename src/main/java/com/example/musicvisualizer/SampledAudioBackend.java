@@ -0,0 +1,443 @@
+package com.example.musicvisualizer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Бэкенд на javax.sound с низкой задержкой. WAV читается напрямую из отображённого в память
+ * {@link FileChannel}, остальные PCM-форматы — потоково через {@link AudioSystem}.
+ * Данные идут кусками фиксированного размера в {@link AudioSink}; размер буфера задаётся
+ * в миллисекундах. Тот же PCM отдаётся подписчикам {@link PcmTap} (в том числе спектру).
+ */
+final class SampledAudioBackend implements PlaybackBackend {
+
+    static final int DEFAULT_BUFFER_MS = 100;
+
+    /**
+     * Подписчик на PCM; вызывается в потоке декодирования перед выводом данных, то есть с опережением
+     * звука на буфер вывода. startFrame — номер первого кадра куска в треке.
+     */
+    interface PcmTap {
+        void onPcm(byte[] data, int offset, int length, AudioFormat format, long startFrame);
+    }
+
+    private final PcmSource source;
+    private final AudioFormat format;
+    private final AudioSink sink;
+    private final int chunkBytes;
+    private final Duration totalDuration;
+
+    private final PcmSpectrumAnalyzer spectrum = new PcmSpectrumAnalyzer(Platform::runLater, this::playbackFrame);
+    private final List<PcmTap> taps = new CopyOnWriteArrayList<>(List.of(spectrum));
+
+    private final ReadOnlyObjectWrapper<Duration> currentTime = new ReadOnlyObjectWrapper<>(Duration.ZERO);
+    private final AtomicBoolean timeUpdatePending = new AtomicBoolean();
+
+    private final Object lock = new Object();
+    private final Thread thread;
+    private boolean playing;        // под lock
+    private long seekFrame = -1;    // под lock
+    private volatile boolean disposed;
+    private volatile Consumer<String> onError;
+    private volatile long baseFrame; // с какого кадра начат текущий отрезок вывода
+
+    SampledAudioBackend(File file, AudioSink sink, int bufferMs) throws IOException {
+        this.source = file.getName().toLowerCase().endsWith(".wav")
+                ? openWav(file)
+                : new StreamSource(file);
+        this.format = source.format();
+        this.sink = sink;
+
+        int frameSize = format.getFrameSize();
+        int bufferBytes = Math.max(frameSize, (int) (format.getFrameRate() * bufferMs / 1000) * frameSize);
+        this.chunkBytes = Math.max(frameSize, bufferBytes / 4 / frameSize * frameSize);
+
+        long frames = source.frameLength();
+        this.totalDuration = frames < 0 ? Duration.UNKNOWN : Duration.seconds(frames / format.getFrameRate());
+
+        try {
+            sink.open(format, bufferBytes);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            source.close();
+            throw new IOException("Audio line unavailable: " + e.getMessage(), e);
+        }
+
+        thread = new Thread(this::run, "sampled-playback");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void addPcmTap(PcmTap tap) {
+        taps.add(tap);
+    }
+
+    void removePcmTap(PcmTap tap) {
+        taps.remove(tap);
+    }
+
+    /* ================= PLAYBACK LOOP ================= */
+    private void run() {
+        byte[] chunk = new byte[chunkBytes];
+        long decodedFrame = 0;
+        try {
+            while (!disposed) {
+                long seek;
+                synchronized (lock) {
+                    while (!disposed && !playing && seekFrame < 0) lock.wait();
+                    seek = seekFrame;
+                    seekFrame = -1;
+                }
+                if (disposed) break;
+
+                if (seek >= 0) {
+                    source.seek(seek);
+                    sink.flush();
+                    spectrum.reset();
+                    baseFrame = seek;
+                    decodedFrame = seek;
+                    postTime();
+                    continue;
+                }
+
+                int n = source.read(chunk, 0, chunk.length);
+                if (n <= 0) {
+                    // Конец трека: доигрываем буфер и встаём на паузу в конце.
+                    // drain() возвращается раньше при паузе или перемотке — тогда трек не закончен
+                    sink.drain();
+                    synchronized (lock) {
+                        if (seekFrame < 0 && playing) {
+                            playing = false;
+                            sink.stop();
+                        }
+                    }
+                    postTime();
+                    continue;
+                }
+
+                for (PcmTap tap : taps) tap.onPcm(chunk, 0, n, format, decodedFrame);
+                decodedFrame += n / format.getFrameSize();
+                // На паузе запись висит, пока буфер полон; перемотка сбрасывает его и отпускает её
+                sink.write(chunk, 0, n);
+                postTime();
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            Consumer<String> handler = onError;
+            if (handler != null && !disposed) {
+                Platform.runLater(() -> handler.accept(e.getMessage()));
+            } else {
+                System.err.println("Playback failed: " + e.getMessage());
+            }
+        } finally {
+            try {
+                source.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private long playbackFrame() {
+        return baseFrame + sink.getFramePosition();
+    }
+
+    private double positionSeconds() {
+        return playbackFrame() / format.getFrameRate();
+    }
+
+    // Не больше одного отложенного обновления времени в очереди FX
+    private void postTime() {
+        if (timeUpdatePending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                timeUpdatePending.set(false);
+                currentTime.set(Duration.seconds(positionSeconds()));
+            });
+        }
+    }
+
+    /* ================= CONTROL ================= */
+    @Override
+    public void setOnReady(Runnable onReady) {
+        // Файл уже открыт в конструкторе
+        if (onReady != null) Platform.runLater(onReady);
+    }
+
+    @Override
+    public void setOnError(Consumer<String> onError) {
+        this.onError = onError;
+    }
+
+    @Override
+    public void play() {
+        synchronized (lock) {
+            playing = true;
+            sink.start();
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            playing = false;
+            sink.stop();
+        }
+    }
+
+    @Override
+    public void stop() {
+        pause();
+        seek(Duration.ZERO);
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        // Закрытие вывода разблокирует поток, ждущий в write()
+        sink.close();
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        synchronized (lock) {
+            return playing;
+        }
+    }
+
+    @Override
+    public void seek(Duration time) {
+        long frame = (long) (Math.max(0, time.toSeconds()) * format.getFrameRate());
+        long frames = source.frameLength();
+        if (frames >= 0) frame = Math.min(frame, frames);
+        synchronized (lock) {
+            seekFrame = frame;
+            // Позиция меняется сразу, даже на паузе: повторные перемотки считаются от неё
+            baseFrame = frame;
+            sink.flush();
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void setVolume(double volume) {
+        sink.setVolume(volume);
+    }
+
+    @Override
+    public Duration getCurrentTime() {
+        return Duration.seconds(positionSeconds());
+    }
+
+    @Override
+    public Duration getTotalDuration() {
+        return totalDuration;
+    }
+
+    @Override
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return currentTime.getReadOnlyProperty();
+    }
+
+    @Override
+    public void setAudioSpectrumInterval(double interval) {
+        spectrum.setInterval(interval);
+    }
+
+    @Override
+    public void setAudioSpectrumNumBands(int bands) {
+        spectrum.setBands(bands);
+    }
+
+    @Override
+    public void setAudioSpectrumThreshold(int threshold) {
+        spectrum.setThreshold(threshold);
+    }
+
+    @Override
+    public void setAudioSpectrumListener(AudioSpectrumListener listener) {
+        spectrum.setListener(listener);
+    }
+
+    /* ================= SOURCES ================= */
+    private interface PcmSource {
+        AudioFormat format();
+
+        /** Длина в кадрах или -1, если неизвестна. */
+        long frameLength();
+
+        int read(byte[] buf, int off, int len) throws IOException;
+
+        void seek(long frame) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static PcmSource openWav(File file) throws IOException {
+        try {
+            return new MappedWavSource(file);
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            // Float или сжатый WAV, либо файл больше 2 ГБ (не отображается одним буфером) —
+            // пусть декодирует AudioSystem
+            return new StreamSource(file);
+        }
+    }
+
+    /** PCM WAV, читаемый прямо из отображённого в память файла. */
+    private static final class MappedWavSource implements PcmSource {
+        private final ByteBuffer data;
+        private final AudioFormat format;
+
+        MappedWavSource(File file) throws IOException, UnsupportedAudioFileException {
+            ByteBuffer map;
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (map.remaining() < 12 || map.getInt(0) != 0x46464952 || map.getInt(8) != 0x45564157) {
+                throw new UnsupportedAudioFileException("Not a RIFF/WAVE file");
+            }
+
+            AudioFormat fmt = null;
+            ByteBuffer pcm = null;
+            int pos = 12;
+            while (pos + 8 <= map.limit() && pcm == null) {
+                int id = map.getInt(pos);
+                long size = map.getInt(pos + 4) & 0xFFFFFFFFL;
+                int body = pos + 8;
+                if (id == 0x20746D66) { // "fmt "
+                    int tag = map.getShort(body) & 0xFFFF;
+                    if (tag == 0xFFFE && size >= 26) tag = map.getShort(body + 24) & 0xFFFF;
+                    int channels = map.getShort(body + 2) & 0xFFFF;
+                    int rate = map.getInt(body + 4);
+                    int blockAlign = map.getShort(body + 12) & 0xFFFF;
+                    int bits = map.getShort(body + 14) & 0xFFFF;
+                    if (tag != 1 || channels == 0 || bits % 8 != 0 || bits > 32) {
+                        throw new UnsupportedAudioFileException("Unsupported WAV encoding " + tag + "/" + bits);
+                    }
+                    fmt = new AudioFormat(bits == 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED,
+                            rate, bits, channels, blockAlign, rate, false);
+                } else if (id == 0x61746164) { // "data"
+                    if (fmt == null) throw new UnsupportedAudioFileException("WAV data before fmt chunk");
+                    int len = (int) Math.min(size, map.limit() - body);
+                    pcm = map.slice(body, len - len % fmt.getFrameSize());
+                }
+                pos = (int) Math.min(Integer.MAX_VALUE, body + size + (size & 1));
+            }
+            if (pcm == null) throw new UnsupportedAudioFileException("WAV without data chunk");
+
+            this.format = fmt;
+            this.data = pcm;
+        }
+
+        @Override
+        public AudioFormat format() {
+            return format;
+        }
+
+        @Override
+        public long frameLength() {
+            return data.limit() / format.getFrameSize();
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) {
+            int n = Math.min(len, data.remaining());
+            if (n <= 0) return -1;
+            data.get(buf, off, n);
+            return n;
+        }
+
+        @Override
+        public void seek(long frame) {
+            data.position((int) Math.min(data.limit(), frame * format.getFrameSize()));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Любой формат, который AudioSystem может декодировать в PCM; перемотка — переоткрытием. */
+    private static final class StreamSource implements PcmSource {
+        private final File file;
+        private final AudioFormat format;
+        private final long frameLength;
+        private AudioInputStream in;
+
+        StreamSource(File file) throws IOException {
+            this.file = file;
+            this.in = open(file);
+            this.format = in.getFormat();
+            this.frameLength = in.getFrameLength() == AudioSystem.NOT_SPECIFIED ? -1 : in.getFrameLength();
+        }
+
+        private static AudioInputStream open(File file) throws IOException {
+            try {
+                AudioInputStream src = AudioSystem.getAudioInputStream(file);
+                AudioFormat f = src.getFormat();
+                AudioFormat.Encoding enc = f.getEncoding();
+                if ((enc == AudioFormat.Encoding.PCM_SIGNED || enc == AudioFormat.Encoding.PCM_UNSIGNED)
+                        && f.getSampleSizeInBits() <= 32) {
+                    return src;
+                }
+                AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, f.getSampleRate(), 16,
+                        f.getChannels(), f.getChannels() * 2, f.getSampleRate(), false);
+                return AudioSystem.getAudioInputStream(pcm, src);
+            } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+                throw new IOException("Cannot decode " + file.getName(), e);
+            }
+        }
+
+        @Override
+        public AudioFormat format() {
+            return format;
+        }
+
+        @Override
+        public long frameLength() {
+            return frameLength;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            return in.read(buf, off, len);
+        }
+
+        @Override
+        public void seek(long frame) throws IOException {
+            in.close();
+            in = open(file);
+            long skip = frame * format.getFrameSize();
+            while (skip > 0) {
+                long n = in.skip(skip);
+                if (n <= 0) break;
+                skip -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
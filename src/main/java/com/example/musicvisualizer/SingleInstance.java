@@ -0,0 +1,231 @@
+package com.example.musicvisualizer;
+
+import javafx.application.Platform;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Один экземпляр плеера на пользователя. Первый запуск ещё в {@code main()}, до JavaFX,
+ * занимает Unix-domain сокет; последующие передают ему команды и сразу завершаются.
+ * <p>
+ * Протокол — строки UTF-8: {@code enqueue <путь>}, {@code play}, {@code next}, {@code show}.
+ * Командная строка: {@code [--play] [--next] [--show] [файлы...]}; файлы превращаются в enqueue,
+ * запуск без аргументов — в show (поднять окно работающего плеера).
+ * <p>
+ * Сокет лежит в {@code $XDG_RUNTIME_DIR} или, если его нет, в личном каталоге (0700)
+ * во временной папке — чтобы другие пользователи не могли управлять плеером.
+ * Принятые команды копятся в очереди и отдаются обработчику пачкой в FX-потоке.
+ * Каждое соединение читается в своём потоке, с ограничением по времени и размеру, —
+ * клиент, который подключился и молчит, не мешает следующим запускам.
+ */
+final class SingleInstance implements Closeable {
+
+    static final String ENQUEUE = "enqueue ";
+    static final String PLAY = "play";
+    static final String NEXT = "next";
+    static final String SHOW = "show";
+
+    private static final String SOCKET_NAME = "musicvisualizer.sock";
+    private static final int CLAIM_ATTEMPTS = 3;
+    static final long CLIENT_TIMEOUT_MS = 2_000;
+    static final int MAX_MESSAGE_BYTES = 64 * 1024;
+
+    private enum Delivery { DELIVERED, ABSENT, STALE }
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile Consumer<List<String>> handler; // до запуска FX команды только копятся
+
+    private SingleInstance(Path socket, ServerSocketChannel server) {
+        this.socket = socket;
+        this.server = server;
+        if (server == null) return;
+
+        Thread t = new Thread(this::acceptLoop, "single-instance");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    static List<String> parseArgs(List<String> args) {
+        List<String> commands = new ArrayList<>();
+        boolean play = false, next = false, show = false;
+        for (String a : args) {
+            switch (a) {
+                case "--play" -> play = true;
+                case "--next" -> next = true;
+                case "--show" -> show = true;
+                case "--enqueue" -> { } // поведение по умолчанию для файлов
+                default -> commands.add(ENQUEUE + new File(a).getAbsolutePath());
+            }
+        }
+        if (play) commands.add(PLAY);
+        if (next) commands.add(NEXT);
+        if (show || commands.isEmpty()) commands.add(SHOW);
+        return commands;
+    }
+
+    /**
+     * Передаёт команды работающему экземпляру или занимает сокет за этим процессом.
+     * null — команды переданы, процесс должен завершиться. Если сокеты недоступны,
+     * возвращается экземпляр без сокета, и плеер работает как обычно.
+     */
+    static SingleInstance claim(List<String> commands) {
+        Path socket;
+        try {
+            socket = socketDir().resolve(SOCKET_NAME);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Single-instance mode disabled: " + e.getMessage());
+            return new SingleInstance(null, null);
+        }
+
+        for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+            try {
+                Delivery d = forward(socket, commands);
+                if (d == Delivery.DELIVERED) return null;
+                // Файл есть, но никто не слушает — остался от упавшего процесса
+                if (d == Delivery.STALE) Files.deleteIfExists(socket);
+
+                ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                try {
+                    server.bind(UnixDomainSocketAddress.of(socket));
+                } catch (IOException e) {
+                    // Другой запуск занял сокет между нашими попытками — передаём команды ему
+                    server.close();
+                    continue;
+                }
+                return new SingleInstance(socket, server);
+            } catch (IOException | UnsupportedOperationException e) {
+                System.err.println("Single-instance mode disabled: " + e.getMessage());
+                break;
+            }
+        }
+        return new SingleInstance(null, null);
+    }
+
+    private static Delivery forward(Path socket, List<String> commands) throws IOException {
+        if (!Files.exists(socket)) return Delivery.ABSENT;
+        try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            ByteBuffer buf = StandardCharsets.UTF_8.encode(String.join("\n", commands) + "\n");
+            while (buf.hasRemaining()) ch.write(buf);
+            return Delivery.DELIVERED;
+        } catch (ConnectException e) {
+            return Delivery.STALE;
+        }
+    }
+
+    // $XDG_RUNTIME_DIR уже личный (0700); иначе — свой каталог во временной папке.
+    // -Dvisualizer.socketDir задаёт каталог явно (тесты, несколько независимых плееров)
+    private static Path socketDir() throws IOException {
+        String explicit = System.getProperty("visualizer.socketDir");
+        if (explicit != null) return Path.of(explicit);
+
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isBlank() && Files.isDirectory(Path.of(runtime))) {
+            return Path.of(runtime);
+        }
+
+        Set<PosixFilePermission> owner = PosixFilePermissions.fromString("rwx------");
+        Path dir = Path.of(System.getProperty("java.io.tmpdir"),
+                "musicvisualizer-" + System.getProperty("user.name", "user"));
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(owner));
+        }
+        if (!Files.getOwner(dir).getName().equals(System.getProperty("user.name"))
+                || !Files.getPosixFilePermissions(dir).equals(owner)) {
+            throw new IOException(dir + " is not a private directory");
+        }
+        return dir;
+    }
+
+    /** Подключает обработчик (в FX-потоке); команды, пришедшие раньше, отдаются сразу. */
+    void setHandler(Consumer<List<String>> handler) {
+        this.handler = handler;
+        scheduleDrain();
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel client = server.accept();
+                Thread.ofVirtual().name("single-instance-client").start(() -> receive(client));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Single-instance connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Команды короткие: читаем соединение целиком до закрытия клиентом, но не дольше
+    // CLIENT_TIMEOUT_MS (закрытие канала прерывает read) и не больше MAX_MESSAGE_BYTES
+    private void receive(SocketChannel client) {
+        CompletableFuture.delayedExecutor(CLIENT_TIMEOUT_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                client.close();
+            } catch (IOException ignored) {}
+        });
+        try (client) {
+            ByteBuffer buf = ByteBuffer.allocate(MAX_MESSAGE_BYTES + 1);
+            while (client.read(buf) >= 0) {
+                if (!buf.hasRemaining()) throw new IOException("message is over " + MAX_MESSAGE_BYTES + " bytes");
+            }
+            String text = StandardCharsets.UTF_8.decode(buf.flip()).toString();
+            for (String line : text.split("\n")) {
+                if (!line.isBlank()) pending.add(line.strip());
+            }
+            scheduleDrain();
+        } catch (AsynchronousCloseException e) {
+            System.err.println("Single-instance client did not finish in " + CLIENT_TIMEOUT_MS + " ms");
+        } catch (IOException e) {
+            System.err.println("Single-instance connection failed: " + e.getMessage());
+        }
+    }
+
+    // Все команды, пришедшие до ближайшего прохода FX-потока, применяются одной пачкой
+    private void scheduleDrain() {
+        Consumer<List<String>> h = handler;
+        if (h == null || pending.isEmpty() || !drainScheduled.compareAndSet(false, true)) return;
+        Platform.runLater(() -> {
+            drainScheduled.set(false);
+            List<String> batch = new ArrayList<>();
+            String cmd;
+            while ((cmd = pending.poll()) != null) batch.add(cmd);
+            if (!batch.isEmpty()) h.accept(batch);
+        });
+    }
+
+    @Override
+    public void close() {
+        if (server == null) return;
+        try {
+            server.close();
+            Files.deleteIfExists(socket);
+        } catch (IOException ignored) {}
+    }
+}
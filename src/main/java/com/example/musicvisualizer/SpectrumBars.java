@@ -0,0 +1,52 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.effect.DropShadow;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Полосы визуализатора: переносит высоты из {@link SpectrumProcessor} на прямоугольники
+ * и красит их по палитре. Эффект свечения общий для всех полос и назначается один раз.
+ */
+final class SpectrumBars {
+
+    private final SpectrumProcessor processor;
+    private final Rectangle[] bars;
+    private final DropShadow glow = new DropShadow(12, Color.rgb(255, 255, 255, 0.18));
+
+    SpectrumBars(SpectrumProcessor processor) {
+        this.processor = processor;
+        this.bars = new Rectangle[processor.bands()];
+        for (int i = 0; i < bars.length; i++) {
+            Rectangle bar = new Rectangle(10, 5);
+            bar.setArcWidth(6);
+            bar.setArcHeight(6);
+            bar.setEffect(glow);
+            bars[i] = bar;
+        }
+    }
+
+    Rectangle[] nodes() {
+        return bars;
+    }
+
+    /** Отрисовка очередного кадра: цвет по энергии кадра, высота и прозрачность по полосам. */
+    void render(Color low, Color high) {
+        Color base = low.interpolate(high, processor.energy());
+        for (int i = 0; i < bars.length; i++) {
+            bars[i].setHeight(processor.height(i));
+        }
+        paint(base);
+    }
+
+    /** Перекраска без нового кадра (смена палитры или темы). */
+    void recolor(Color low, Color high) {
+        paint(low.interpolate(high, processor.peakEnergy()));
+    }
+
+    private void paint(Color base) {
+        for (int i = 0; i < bars.length; i++) {
+            bars[i].setFill(new Color(base.getRed(), base.getGreen(), base.getBlue(), processor.opacity(i)));
+        }
+    }
+}
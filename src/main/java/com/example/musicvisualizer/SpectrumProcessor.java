@@ -0,0 +1,78 @@
+package com.example.musicvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Превращает кадр спектра в высоты полос визуализатора: симметричная раскладка от центра,
+ * поправка громкости трека и сглаживание между кадрами. Не зависит от JavaFX-сцены
+ * и не выделяет память на кадр.
+ */
+final class SpectrumProcessor {
+
+    static final double MIN_HEIGHT = 6;
+    static final double MAX_HEIGHT = 180;
+
+    private static final double HEIGHT_SCALE = 3.2;
+    private static final double SMOOTHING = 0.18;
+    private static final double INITIAL_HEIGHT = 5;
+
+    private final int bands;
+    private final int threshold;
+    private final double[] heights;
+    private double energy;
+
+    SpectrumProcessor(int bands, int threshold) {
+        this.bands = bands;
+        this.threshold = threshold;
+        this.heights = new double[bands];
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(heights, INITIAL_HEIGHT);
+        energy = 0;
+    }
+
+    int bands() {
+        return bands;
+    }
+
+    /** Обрабатывает кадр; число амплитуд может отличаться от числа полос. */
+    void process(float[] mags, double gainDb) {
+        double floor = threshold - gainDb;
+
+        double sum = 0;
+        for (float m : mags) sum += Math.max(0, m - floor);
+        energy = Math.min(1.0, sum / (mags.length * -threshold));
+
+        double center = (bands - 1) / 2.0;
+        for (int i = 0; i < bands; i++) {
+            double dist = Math.abs(i - center) / center;
+            int idx = Math.min((int) (dist * (mags.length / 2)), mags.length - 1);
+
+            double h = Math.max(0, mags[idx] - floor) * HEIGHT_SCALE;
+            heights[i] += (h - heights[i]) * SMOOTHING;
+        }
+    }
+
+    /** Энергия последнего кадра, 0..1 — положение между нижним и верхним цветом палитры. */
+    double energy() {
+        return energy;
+    }
+
+    /** Энергия по самой высокой полосе — для перекраски без нового кадра. */
+    double peakEnergy() {
+        double max = 0;
+        for (double h : heights) if (h > max) max = h;
+        return Math.min(1.0, max / MAX_HEIGHT);
+    }
+
+    /** Отображаемая высота полосы. */
+    double height(int band) {
+        return Math.max(MIN_HEIGHT, heights[band]);
+    }
+
+    double opacity(int band) {
+        return Math.min(1, 0.4 + heights[band] / MAX_HEIGHT);
+    }
+}
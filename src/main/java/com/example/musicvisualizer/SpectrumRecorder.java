@@ -0,0 +1,123 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.media.AudioSpectrumListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Записывает поток спектра (timestamp, duration, magnitudes, phases) в компактный бинарный файл,
+ * который потом можно проиграть через {@link SpectrumReplay} без звуковой карты.
+ * <p>
+ * Формат: заголовок (magic, версия, порог, флаги), далее кадры. Время хранится как разница
+ * с предыдущим кадром в микросекундах, амплитуды квантуются с шагом {@link #MAG_STEP} дБ
+ * и пишутся как разница с предыдущим кадром (zigzag varint), фазы — одним байтом.
+ */
+final class SpectrumRecorder implements Closeable {
+
+    static final int MAGIC = 0x4D565350; // "MVSP"
+    static final byte VERSION = 1;
+    static final byte FLAG_PHASES = 1;
+    static final double MAG_STEP = 0.25;
+    static final double PHASE_SCALE = 127 / Math.PI;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final float threshold;
+    private final boolean withPhases;
+
+    private int[] prevMags = new int[0];
+    private long prevTimestamp;
+    private boolean failed;
+
+    SpectrumRecorder(Path file, float threshold, boolean withPhases) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.threshold = threshold;
+        this.withPhases = withPhases;
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putFloat(threshold);
+        buffer.put(withPhases ? FLAG_PHASES : 0);
+    }
+
+    /** Слушатель, который сначала записывает кадр, а затем передаёт его дальше. */
+    AudioSpectrumListener tee(AudioSpectrumListener target) {
+        return (t, d, mags, ph) -> {
+            record(t, d, mags, ph);
+            target.spectrumDataUpdate(t, d, mags, ph);
+        };
+    }
+
+    void record(double timestamp, double duration, float[] mags, float[] phases) {
+        if (failed) return;
+
+        int n = mags.length;
+        try {
+            // varint: до 10 байт на время, до 5 байт на амплитуду, плюс байт фазы
+            if (buffer.remaining() < 25 + n * 6) flush();
+        } catch (IOException e) {
+            failed = true;
+            return;
+        }
+
+        if (prevMags.length != n) prevMags = new int[n];
+
+        long ts = Math.round(timestamp * 1_000_000);
+        putVarInt(n);
+        putVarLong(zigzag(ts - prevTimestamp));
+        putVarLong(Math.max(0, Math.round(duration * 1_000_000)));
+        prevTimestamp = ts;
+
+        for (int i = 0; i < n; i++) {
+            int q = Math.max(0, (int) Math.round((mags[i] - threshold) / MAG_STEP));
+            putVarLong(zigzag(q - prevMags[i]));
+            prevMags[i] = q;
+        }
+
+        if (withPhases) {
+            for (int i = 0; i < n; i++) {
+                float p = i < phases.length ? phases[i] : 0;
+                buffer.put((byte) Math.round(p * PHASE_SCALE));
+            }
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!failed) flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putVarInt(int v) {
+        putVarLong(v & 0xFFFFFFFFL);
+    }
+
+    private void putVarLong(long v) {
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+}
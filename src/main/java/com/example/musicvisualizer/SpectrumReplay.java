@@ -0,0 +1,183 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.media.AudioSpectrumListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Проигрывает файл, записанный {@link SpectrumRecorder}, в обычный {@link AudioSpectrumListener}.
+ * {@link #replay} отдаёт все кадры синхронно и без пауз (для бенчмарков и регрессионных тестов),
+ * {@link #start} — в реальном или ускоренном темпе через заданный executor (например, Platform::runLater).
+ */
+final class SpectrumReplay {
+
+    private final ByteBuffer data;
+    private final float threshold;
+    private final boolean withPhases;
+    private final int frameStart;
+
+    private record Frame(double timestamp, double duration, float[] mags, float[] phases) {}
+
+    private SpectrumReplay(ByteBuffer data) throws IOException {
+        if (data.remaining() < 10 || data.getInt() != SpectrumRecorder.MAGIC) {
+            throw new IOException("Not a spectrum recording");
+        }
+        byte version = data.get();
+        if (version != SpectrumRecorder.VERSION) {
+            throw new IOException("Unsupported spectrum recording version: " + version);
+        }
+        this.threshold = data.getFloat();
+        this.withPhases = (data.get() & SpectrumRecorder.FLAG_PHASES) != 0;
+        this.frameStart = data.position();
+        this.data = data;
+    }
+
+    static SpectrumReplay open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SpectrumReplay(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    float getThreshold() {
+        return threshold;
+    }
+
+    /** Отдаёт все кадры подряд в текущем потоке; массивы переиспользуются между кадрами. */
+    int replay(AudioSpectrumListener listener) {
+        Reader r = new Reader(false);
+        int frames = 0;
+        while (r.next()) {
+            listener.spectrumDataUpdate(r.timestamp, r.duration, r.mags, r.phases);
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * Запускает проигрывание в фоновом потоке с сохранением интервалов между кадрами.
+     * speed = 1 — записанный темп, 2 — вдвое быстрее и т.д.; speed <= 0 — без пауз.
+     * Если получатель не успевает, кадры схлопываются до последнего: в очереди executor'а
+     * всегда не больше одной задачи.
+     */
+    Thread start(AudioSpectrumListener listener, double speed, Executor dispatcher) {
+        Thread t = new Thread(() -> {
+            Reader r = new Reader(true);
+            long startNanos = System.nanoTime();
+            double firstTimestamp = Double.NaN;
+            double lastTimestamp = 0;
+            double offset = 0;
+            AtomicReference<Frame> latest = new AtomicReference<>();
+
+            while (r.next()) {
+                if (Double.isNaN(firstTimestamp)) firstTimestamp = r.timestamp;
+                // Время в записи может идти назад (перемотка, новый трек) — продолжаем от последнего кадра
+                if (r.timestamp < lastTimestamp) offset += lastTimestamp - r.timestamp + r.duration;
+                lastTimestamp = r.timestamp;
+
+                if (speed > 0) {
+                    double elapsed = (r.timestamp + offset - firstTimestamp) / speed;
+                    long wait = startNanos + (long) (elapsed * 1e9) - System.nanoTime();
+                    if (wait > 0) {
+                        try {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) return;
+
+                if (latest.getAndSet(new Frame(r.timestamp, r.duration, r.mags, r.phases)) == null) {
+                    dispatcher.execute(() -> {
+                        Frame f = latest.getAndSet(null);
+                        listener.spectrumDataUpdate(f.timestamp(), f.duration(), f.mags(), f.phases());
+                    });
+                }
+            }
+        }, "spectrum-replay");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private final class Reader {
+        private final ByteBuffer in = data.duplicate().position(frameStart);
+        private final boolean freshArrays;
+
+        private int[] prevMags = new int[0];
+        private long prevTimestamp;
+        private int frames;
+        private boolean truncated;
+
+        double timestamp;
+        double duration;
+        float[] mags = new float[0];
+        float[] phases = new float[0];
+
+        Reader(boolean freshArrays) {
+            this.freshArrays = freshArrays;
+        }
+
+        /** Следующий кадр; false в конце файла или на оборванном кадре (запись прервали). */
+        boolean next() {
+            if (!in.hasRemaining()) return false;
+
+            int n = (int) getVarLong();
+            if (truncated || n < 0 || n > in.remaining()) return truncated();
+            if (prevMags.length != n) prevMags = new int[n];
+            if (freshArrays || mags.length != n) {
+                mags = new float[n];
+                phases = new float[n];
+            }
+
+            prevTimestamp += unzigzag(getVarLong());
+            timestamp = prevTimestamp / 1e6;
+            duration = getVarLong() / 1e6;
+
+            for (int i = 0; i < n; i++) {
+                prevMags[i] += (int) unzigzag(getVarLong());
+                mags[i] = (float) (threshold + prevMags[i] * SpectrumRecorder.MAG_STEP);
+            }
+            if (truncated || (withPhases && in.remaining() < n)) return truncated();
+
+            if (withPhases) {
+                for (int i = 0; i < n; i++) phases[i] = (float) (in.get() / SpectrumRecorder.PHASE_SCALE);
+            }
+            frames++;
+            return true;
+        }
+
+        private boolean truncated() {
+            System.err.println("Spectrum recording is truncated after " + frames + " frames");
+            in.position(in.limit());
+            return false;
+        }
+
+        // На обрыве файла возвращает 0 и выставляет truncated, кадр проверяется целиком после чтения
+        private long getVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (!in.hasRemaining()) {
+                    truncated = true;
+                    return 0;
+                }
+                b = in.get();
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+
+        private long unzigzag(long v) {
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
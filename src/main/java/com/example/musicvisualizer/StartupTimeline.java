@@ -0,0 +1,40 @@
+package com.example.musicvisualizer;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Отметки холодного старта от запуска JVM: первый кадр, завершение отложенной инициализации,
+ * загрузка плейлиста, первый звук. Каждое событие фиксируется один раз и печатается строкой
+ * "[startup] <событие> <мс>", чтобы регрессии было легко отслеживать по логам.
+ */
+final class StartupTimeline {
+
+    static final String FX_START = "fx-start";
+    static final String FIRST_FRAME = "first-frame";
+    static final String UI_READY = "ui-ready";
+    static final String PLAYLIST_LOADED = "playlist-loaded";
+    static final String FIRST_AUDIO = "first-audio"; // позиция первого трека сдвинулась во время игры
+
+    private static final long ORIGIN = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElseGet(System::currentTimeMillis);
+
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+
+    private StartupTimeline() {
+    }
+
+    static synchronized void mark(String event) {
+        if (marks.containsKey(event)) return;
+        long ms = System.currentTimeMillis() - ORIGIN;
+        marks.put(event, ms);
+        System.out.println("[startup] " + event + " " + ms + " ms");
+    }
+
+    /** Время события от старта JVM в мс или -1, если его ещё не было. */
+    static synchronized long get(String event) {
+        return marks.getOrDefault(event, -1L);
+    }
+}
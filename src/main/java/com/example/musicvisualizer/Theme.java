@@ -0,0 +1,30 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Тема оформления как данные: класс стиля на корне сцены (цвета — в css/style.css),
+ * значок кнопки и палитра визуализатора по умолчанию.
+ */
+enum Theme {
+
+    DARK("theme-dark", "🌙", Color.web("#4facfe"), Color.web("#ff4e50")),
+    LIGHT("theme-light", "☀", Color.web("#00c6ff"), Color.web("#0072ff"));
+
+    final String styleClass;
+    final String icon;
+    final Color colorLow;
+    final Color colorHigh;
+
+    Theme(String styleClass, String icon, Color colorLow, Color colorHigh) {
+        this.styleClass = styleClass;
+        this.icon = icon;
+        this.colorLow = colorLow;
+        this.colorHigh = colorHigh;
+    }
+
+    Theme next() {
+        Theme[] all = values();
+        return all[(ordinal() + 1) % all.length];
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.musicvisualizer;
+
+import javafx.animation.Animation;
+import javafx.animation.FadeTransition;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.util.Duration;
+
+import java.net.URL;
+
+/**
+ * Переключение тем через класс стиля на корне сцены. Таблица стилей подключается один раз,
+ * смена темы меняет только класс — JavaFX пересчитывает стили за один проход без разбора
+ * inline-строк. Для плавности используется одна переиспользуемая анимация.
+ */
+final class ThemeEngine {
+
+    static final String STYLESHEET = "/css/style.css";
+
+    private final Scene scene;
+    private final FadeTransition fade;
+    private Theme theme;
+
+    ThemeEngine(Scene scene, Node fadeTarget, Theme initial) {
+        this.scene = scene;
+
+        URL css = ThemeEngine.class.getResource(STYLESHEET);
+        if (css != null) {
+            scene.getStylesheets().add(css.toExternalForm());
+        } else {
+            System.err.println("Stylesheet not found: " + STYLESHEET);
+        }
+
+        fade = new FadeTransition(Duration.millis(300), fadeTarget);
+        fade.setFromValue(0.3);
+        fade.setToValue(1.0);
+
+        apply(initial);
+    }
+
+    Theme getTheme() {
+        return theme;
+    }
+
+    boolean isTransitioning() {
+        return fade.getStatus() == Animation.Status.RUNNING;
+    }
+
+    /** Меняет тему с коротким проявлением панели. */
+    void switchTo(Theme next) {
+        apply(next);
+        fade.playFromStart();
+    }
+
+    private void apply(Theme next) {
+        var classes = scene.getRoot().getStyleClass();
+        for (Theme t : Theme.values()) {
+            if (t != next) classes.remove(t.styleClass);
+        }
+        if (!classes.contains(next.styleClass)) classes.add(next.styleClass);
+        theme = next;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.musicvisualizer;
+
+/**
+ * Формат "mm:ss / mm:ss" без лишних аллокаций: строка собирается в переиспользуемом буфере
+ * и создаётся заново только когда меняется отображаемая секунда. Минуты больше 99 выводятся целиком.
+ */
+final class TimeLabelFormatter {
+
+    private final char[] buf = new char[32];
+    private int lastCurrent = -1, lastTotal = -1;
+    private String text;
+
+    String format(double currentSeconds, double totalSeconds) {
+        int cur = toWholeSeconds(currentSeconds);
+        int total = toWholeSeconds(totalSeconds);
+        if (cur == lastCurrent && total == lastTotal) return text;
+
+        lastCurrent = cur;
+        lastTotal = total;
+
+        int pos = put(buf, 0, cur);
+        buf[pos++] = ' ';
+        buf[pos++] = '/';
+        buf[pos++] = ' ';
+        pos = put(buf, pos, total);
+        text = new String(buf, 0, pos);
+        return text;
+    }
+
+    private static int toWholeSeconds(double seconds) {
+        // NaN / UNKNOWN до готовности плеера показываем как 00:00
+        return Double.isNaN(seconds) || Double.isInfinite(seconds) || seconds < 0 ? 0 : (int) seconds;
+    }
+
+    private static int put(char[] b, int pos, int seconds) {
+        int m = seconds / 60, s = seconds % 60;
+        if (m >= 100) {
+            int digits = 0;
+            for (int v = m; v > 0; v /= 10) digits++;
+            for (int i = digits - 1, v = m; i >= 0; i--, v /= 10) b[pos + i] = (char) ('0' + v % 10);
+            pos += digits;
+        } else {
+            b[pos++] = (char) ('0' + m / 10);
+            b[pos++] = (char) ('0' + m % 10);
+        }
+        b[pos++] = ':';
+        b[pos++] = (char) ('0' + s / 10);
+        b[pos++] = (char) ('0' + s % 10);
+        return pos;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.musicvisualizer;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Единая точка обновления UI: компоненты публикуют значения и флаги, а применяются они
+ * не чаще одного раза на свойство за кадр (pulse). Таймер запускается только когда есть
+ * что применять, поэтому в простое лишних кадров не добавляет. Только для FX-потока.
+ */
+final class UiPulse extends AnimationTimer {
+
+    /** Последнее опубликованное за кадр числовое значение. */
+    final class DoubleSlot {
+        private final DoubleConsumer target;
+        private double value;
+        private boolean dirty;
+
+        private DoubleSlot(DoubleConsumer target) {
+            this.target = target;
+        }
+
+        void post(double v) {
+            value = v;
+            if (!dirty) {
+                dirty = true;
+                schedule();
+            }
+        }
+
+        private void apply() {
+            dirty = false;
+            target.accept(value);
+        }
+    }
+
+    /** Отложенное действие: сколько бы раз ни отметили за кадр, выполнится один раз. */
+    final class Flag {
+        private final Runnable action;
+        private boolean dirty;
+
+        private Flag(Runnable action) {
+            this.action = action;
+        }
+
+        void mark() {
+            if (!dirty) {
+                dirty = true;
+                schedule();
+            }
+        }
+
+        private void apply() {
+            dirty = false;
+            action.run();
+        }
+    }
+
+    private final List<DoubleSlot> slots = new ArrayList<>();
+    private final List<Flag> flags = new ArrayList<>();
+    private boolean scheduled;
+
+    DoubleSlot doubleSlot(DoubleConsumer target) {
+        DoubleSlot s = new DoubleSlot(target);
+        slots.add(s);
+        return s;
+    }
+
+    Flag flag(Runnable action) {
+        Flag f = new Flag(action);
+        flags.add(f);
+        return f;
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        start();
+    }
+
+    @Override
+    public void handle(long now) {
+        scheduled = false;
+        stop();
+
+        for (int i = 0; i < slots.size(); i++) {
+            DoubleSlot s = slots.get(i);
+            if (s.dirty) s.apply();
+        }
+        for (int i = 0; i < flags.size(); i++) {
+            Flag f = flags.get(i);
+            if (f.dirty) f.apply();
+        }
+    }
+}
@@ -3,6 +3,7 @@ module com.example.musicvisualizer {
     requires javafx.fxml;
     requires javafx.media;
     requires javafx.graphics;
+    requires java.desktop;
 
     opens com.example.musicvisualizer to javafx.fxml;
     exports com.example.musicvisualizer;
@@ -0,0 +1,82 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveGovernorTest {
+
+    private static final long MS = 1_000_000;
+    private static final int WINDOW = AdaptiveGovernor.WINDOW;
+
+    /** Часы, которые двигает сам тест. */
+    private long now;
+    private AdaptiveGovernor governor = new AdaptiveGovernor(8, false, () -> now);
+
+    // Кадры приходят с интервалом текущего уровня, как от плеера, — в том числе после его смены
+    private void frames(int n, long costNanos) {
+        for (int i = 0; i < n; i++) {
+            long interval = (long) (governor.getLevel().interval() * 1e9);
+            long start = governor.beginFrame();
+            now += costNanos;
+            governor.endFrame(start);
+            now += interval - costNanos;
+        }
+    }
+
+    private int level() {
+        return governor.levelProperty().get();
+    }
+
+    private void assertDefaultLevel(String when) {
+        assertEquals(AdaptiveGovernor.DEFAULT_LEVEL, level(), when);
+    }
+
+    @Test
+    void cheapFramesKeepDefaultLevel() {
+        for (int w = 1; w <= 8; w++) {
+            frames(WINDOW, MS);
+            assertEquals(AdaptiveGovernor.DEFAULT_LEVEL, level(), "window " + w);
+        }
+    }
+
+    @Test
+    void fasterLevelIsOptIn() {
+        governor = new AdaptiveGovernor(8, true, () -> now);
+        for (int w = 1; w <= 8; w++) {
+            frames(WINDOW, MS);
+            int expected = w < AdaptiveGovernor.SETTLE_WINDOWS ? AdaptiveGovernor.DEFAULT_LEVEL : 0;
+            assertEquals(expected, level(), "window " + w);
+        }
+    }
+
+    @Test
+    void overloadLowersLevel() {
+        frames(WINDOW, 20 * MS);
+
+        assertEquals(AdaptiveGovernor.DEFAULT_LEVEL + 1, level());
+    }
+
+    @Test
+    void pauseDoesNotLowerLevel() {
+        frames(WINDOW + WINDOW / 2, MS);
+        assertDefaultLevel("before pause");
+        now += 5_000 * MS; // пауза на 5 с без restartTiming
+        for (int w = 1; w <= 3; w++) {
+            frames(WINDOW, MS);
+            assertDefaultLevel("window " + w + " after pause");
+        }
+    }
+
+    @Test
+    void restartTimingForgetsTheGap() {
+        frames(WINDOW + WINDOW / 2, MS);
+        assertDefaultLevel("before seek");
+        governor.restartTiming();
+        now += 150 * MS; // короткий разрыв (перемотка) — меньше порога паузы
+        for (int w = 1; w <= 3; w++) {
+            frames(WINDOW, MS);
+            assertDefaultLevel("window " + w + " after seek");
+        }
+    }
+}
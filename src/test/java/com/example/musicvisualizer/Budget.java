@@ -0,0 +1,66 @@
+package com.example.musicvisualizer;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Бюджеты производительности: время и выделенная память на операцию в текущем потоке.
+ * Лимиты по времени умножаются на {@code -Dbudget.scale} (по умолчанию 1) для медленных машин;
+ * лимиты по памяти от машины не зависят и не масштабируются.
+ */
+final class Budget {
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("budget.scale", "1"));
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        // Первый вызов включает учёт выделений в JVM — не должен попасть в замер
+        THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private Budget() {
+    }
+
+    /** Средняя стоимость одной операции из серии. */
+    record Cost(double nanosPerOp, double bytesPerOp) {
+        /** Стоимость в пересчёте на один из {@code n} элементов операции (кадров, записей). */
+        Cost per(int n) {
+            return new Cost(nanosPerOp / n, bytesPerOp / n);
+        }
+    }
+
+    /** Прогревает JIT, затем меряет {@code ops} вызовов. */
+    static Cost measure(int warmup, int ops, Runnable op) {
+        for (int i = 0; i < warmup; i++) op.run();
+
+        long tid = Thread.currentThread().threadId();
+        long bytes = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) op.run();
+        long nanos = System.nanoTime() - start;
+        bytes = THREADS.getThreadAllocatedBytes(tid) - bytes;
+
+        return new Cost((double) nanos / ops, (double) bytes / ops);
+    }
+
+    /** Однократная операция (например, над всем плейлистом). */
+    static Cost once(Runnable op) {
+        return measure(0, 1, op);
+    }
+
+    static void assertTime(String what, Cost cost, double maxMicros) {
+        double limit = maxMicros * SCALE;
+        double actual = cost.nanosPerOp() / 1000;
+        if (actual > limit) {
+            fail(String.format("%s: %.1f us > budget %.1f us", what, actual, limit));
+        }
+    }
+
+    static void assertAllocation(String what, Cost cost, double maxBytes) {
+        if (cost.bytesPerOp() > maxBytes) {
+            fail(String.format("%s: %.0f bytes > budget %.0f bytes", what, cost.bytesPerOp(), maxBytes));
+        }
+    }
+}
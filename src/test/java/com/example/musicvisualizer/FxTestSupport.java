@@ -0,0 +1,52 @@
+package com.example.musicvisualizer;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запуск JavaFX в тестах. Платформа (Monocle, программный рендер) задаётся свойствами
+ * в конфигурации surefire; здесь она только поднимается один раз на всю JVM.
+ */
+final class FxTestSupport {
+
+    private static boolean started;
+
+    private FxTestSupport() {
+    }
+
+    static synchronized void start() throws InterruptedException {
+        if (started) return;
+        CountDownLatch ready = new CountDownLatch(1);
+        try {
+            Platform.startup(ready::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            ready.countDown();
+        }
+        Platform.setImplicitExit(false);
+        if (!ready.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("JavaFX did not start");
+        started = true;
+    }
+
+    /** Выполняет действие в FX-потоке и ждёт результат. */
+    static <T> T call(Callable<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        try {
+            return result.get(60, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception ex) throw ex;
+            throw (Error) e.getCause();
+        }
+    }
+}
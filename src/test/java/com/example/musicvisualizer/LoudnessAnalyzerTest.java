@@ -0,0 +1,178 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoudnessAnalyzerTest {
+
+    private static final double TARGET = LoudnessAnalyzer.DEFAULT_TARGET_LUFS;
+    private static final double HEADROOM = LoudnessAnalyzer.DEFAULT_HEADROOM_DB;
+
+    @TempDir
+    Path dir;
+
+    private LoudnessAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        analyzer = new LoudnessAnalyzer(dir.resolve("loudness.cache"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        analyzer.shutdown();
+    }
+
+    private static double db(double gain) {
+        return 20 * Math.log10(gain);
+    }
+
+    private static final double RATE = 48_000;
+
+    /** Синус в каждый канал измерителя; phase — начальная фаза в радианах. */
+    private static void sine(LoudnessAnalyzer.Meter meter, int channels, double seconds,
+                             double hz, double amplitude, double phase) {
+        int frames = (int) (seconds * RATE);
+        for (int i = 0; i < frames; i++) {
+            double x = amplitude * Math.sin(2 * Math.PI * hz * i / RATE + phase);
+            for (int c = 0; c < channels; c++) meter.sample(c, x);
+            meter.endFrame();
+        }
+    }
+
+    /* ===== BS.1770 ===== */
+    // Опорные значения из BS.1770-4: синус 997 Гц 0 dBFS даёт -3.01 LUFS в одном канале
+    @Test
+    void fullScaleSineMono() {
+        LoudnessAnalyzer.Meter meter = new LoudnessAnalyzer.Meter(RATE, 1);
+        sine(meter, 1, 10, 997, 1.0, 0);
+
+        assertEquals(-3.01, meter.integratedLufs(), 0.02);
+        assertEquals(0.0, meter.truePeakDb(), 0.05);
+    }
+
+    @Test
+    void fullScaleSineStereo() {
+        LoudnessAnalyzer.Meter meter = new LoudnessAnalyzer.Meter(RATE, 2);
+        sine(meter, 2, 10, 997, 1.0, 0);
+
+        assertEquals(0.0, meter.integratedLufs(), 0.02);
+    }
+
+    @Test
+    void gatesDropSilenceAndQuietPassages() {
+        LoudnessAnalyzer.Meter meter = new LoudnessAnalyzer.Meter(RATE, 1);
+        sine(meter, 1, 10, 997, 1.0, 0);
+        sine(meter, 1, 10, 997, Math.pow(10, -30 / 20.0), 0); // ниже относительного гейта
+        sine(meter, 1, 10, 997, 0, 0);                        // ниже абсолютного гейта
+
+        // 97 громких блоков и 3 на стыке (3/4, 2/4, 1/4 энергии) проходят гейты, остальные — нет;
+        // без гейтов вышло бы около -7.8 LUFS
+        assertEquals(-3.01 + 10 * Math.log10((97 + 1.5) / 100), meter.integratedLufs(), 0.02);
+    }
+
+    @Test
+    void silenceHasNoLoudness() {
+        LoudnessAnalyzer.Meter meter = new LoudnessAnalyzer.Meter(RATE, 2);
+        sine(meter, 2, 2, 997, 0, 0);
+
+        assertEquals(Double.NEGATIVE_INFINITY, meter.integratedLufs());
+        assertEquals(Double.NEGATIVE_INFINITY, meter.truePeakDb());
+    }
+
+    // Синус fs/4 со сдвигом 45°: все отсчёты на ±0.707, а между ними сигнал доходит до 1.0
+    @Test
+    void truePeakSeesInterSamplePeaks() {
+        LoudnessAnalyzer.Meter meter = new LoudnessAnalyzer.Meter(RATE, 1);
+        sine(meter, 1, 1, RATE / 4, 1.0, Math.PI / 4);
+
+        double samplePeak = db(Math.sqrt(0.5));
+        assertTrue(meter.truePeakDb() > samplePeak + 2, "true peak " + meter.truePeakDb());
+        assertEquals(0.0, meter.truePeakDb(), 0.5);
+    }
+
+    @Test
+    void headroomEvensOutQuietAndLoudTracks() {
+        LoudnessAnalyzer.Loudness quiet = new LoudnessAnalyzer.Loudness(TARGET - HEADROOM, -30);
+        LoudnessAnalyzer.Loudness loud = new LoudnessAnalyzer.Loudness(TARGET + 8, -10);
+
+        double quietOut = quiet.integratedLufs() + db(quiet.playbackGain(TARGET, HEADROOM));
+        double loudOut = loud.integratedLufs() + db(loud.playbackGain(TARGET, HEADROOM));
+
+        assertEquals(quietOut, loudOut, 1e-9);
+        assertEquals(1.0, quiet.playbackGain(TARGET, HEADROOM), 1e-12);
+    }
+
+    @Test
+    void unknownTrackIsTreatedAsOnTarget() {
+        LoudnessAnalyzer.Loudness onTarget = new LoudnessAnalyzer.Loudness(TARGET, -20);
+
+        assertEquals(onTarget.playbackGain(TARGET, HEADROOM),
+                LoudnessAnalyzer.Loudness.UNKNOWN.playbackGain(TARGET, HEADROOM), 1e-12);
+    }
+
+    /** WAV с синусом 997 Гц заданной громкости (моно, 48 кГц). */
+    private File wav(String name, double lufs) throws Exception {
+        AudioFormat format = new AudioFormat((float) RATE, 16, 1, true, false);
+        double amplitude = Math.pow(10, (lufs + 3.01) / 20);
+        int frames = (int) (5 * RATE);
+        byte[] pcm = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short v = (short) Math.round(32767 * amplitude * Math.sin(2 * Math.PI * 997 * i / RATE));
+            pcm[2 * i] = (byte) v;
+            pcm[2 * i + 1] = (byte) (v >> 8);
+        }
+        File file = dir.resolve(name).toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames),
+                AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    @Test
+    void headroomOnlyWhenAMeasuredTrackNeedsIt() throws Exception {
+        File mp3 = dir.resolve("track.mp3").toFile();
+        Files.write(mp3.toPath(), new byte[4096]);
+        File loud = wav("loud.wav", TARGET + 4);
+        File quiet = wav("quiet.wav", TARGET - 3);
+        File silent = wav("very-quiet.wav", TARGET - 12);
+        for (File f : List.of(mp3, loud, quiet, silent)) analyzer.analyze(f).get();
+
+        assertEquals(0, analyzer.headroomDb(List.of(mp3), TARGET, HEADROOM), 1e-12, "nothing measured");
+        assertEquals(0, analyzer.headroomDb(List.of(mp3, loud), TARGET, HEADROOM), 1e-12, "nothing to boost");
+        assertEquals(3, analyzer.headroomDb(List.of(mp3, loud, quiet), TARGET, HEADROOM), 0.05);
+        assertEquals(HEADROOM, analyzer.headroomDb(List.of(quiet, silent), TARGET, HEADROOM), 1e-12);
+    }
+
+    @Test
+    void undecodableFormatIsCached() throws Exception {
+        File mp3 = dir.resolve("track.mp3").toFile();
+        Files.write(mp3.toPath(), new byte[4096]);
+
+        assertEquals(LoudnessAnalyzer.Loudness.UNKNOWN, analyzer.analyze(mp3).get());
+        assertEquals(LoudnessAnalyzer.Loudness.UNKNOWN, analyzer.cached(mp3));
+    }
+
+    @Test
+    void readFailureIsNotCached() throws Exception {
+        File missing = dir.resolve("still-copying.wav").toFile();
+
+        assertEquals(LoudnessAnalyzer.Loudness.UNKNOWN, analyzer.analyze(missing).get());
+        assertNull(analyzer.cached(missing));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PcmSpectrumAnalyzerTest {
+
+    private static final AudioFormat FORMAT = new AudioFormat(44_100, 16, 1, true, false);
+
+    /** Секунда синуса 1 кГц, 16 бит моно. */
+    private static byte[] tone() {
+        byte[] pcm = new byte[(int) FORMAT.getFrameRate() * 2];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short v = (short) (8000 * Math.sin(2 * Math.PI * 1000 * i / FORMAT.getFrameRate()));
+            pcm[2 * i] = (byte) v;
+            pcm[2 * i + 1] = (byte) (v >> 8);
+        }
+        return pcm;
+    }
+
+    private static PcmSpectrumAnalyzer analyzer(long playbackFrame, List<Double> delivered) {
+        PcmSpectrumAnalyzer a = new PcmSpectrumAnalyzer(Runnable::run, () -> playbackFrame);
+        a.setInterval(0.5);
+        a.setBands(64);
+        a.setListener((ts, d, mags, phases) -> delivered.add(ts));
+        return a;
+    }
+
+    private static void await(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (list.size() < size && System.nanoTime() < deadline) Thread.sleep(10);
+    }
+
+    @Test
+    void framesWaitForPlaybackPosition() throws Exception {
+        List<Double> delivered = new CopyOnWriteArrayList<>();
+        PcmSpectrumAnalyzer a = analyzer(0, delivered);
+
+        byte[] pcm = tone();
+        a.onPcm(pcm, 0, pcm.length, FORMAT, 0);
+
+        assertTrue(delivered.isEmpty(), "decoded audio has not been heard yet");
+        await(delivered, 2);
+        assertEquals(List.of(0.5, 1.0), delivered);
+    }
+
+    @Test
+    void alreadyPlayedFramesAreImmediate() {
+        List<Double> delivered = new CopyOnWriteArrayList<>();
+        PcmSpectrumAnalyzer a = analyzer(Long.MAX_VALUE / 2, delivered);
+
+        byte[] pcm = tone();
+        a.onPcm(pcm, 0, pcm.length, FORMAT, 0);
+
+        assertEquals(2, delivered.size());
+    }
+
+    @Test
+    void seekDropsPendingFrames() throws Exception {
+        List<Double> delivered = new CopyOnWriteArrayList<>();
+        PcmSpectrumAnalyzer a = analyzer(0, delivered);
+
+        byte[] pcm = tone();
+        a.onPcm(pcm, 0, pcm.length, FORMAT, 0);
+        a.reset();
+
+        Thread.sleep(1_500);
+        assertTrue(delivered.isEmpty());
+    }
+}
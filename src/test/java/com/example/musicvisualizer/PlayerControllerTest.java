@@ -0,0 +1,255 @@
+package com.example.musicvisualizer;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.media.AudioSpectrumListener;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerControllerTest {
+
+    /** Бэкенд без медиа: готовность наступает, когда тест вызывает {@link #ready()}. */
+    static final class FakeBackend implements PlaybackBackend {
+        final File file;
+        final ReadOnlyObjectWrapper<Duration> time = new ReadOnlyObjectWrapper<>(Duration.ZERO);
+        Runnable onReady;
+        Consumer<String> onError;
+        boolean playing, disposed;
+
+        FakeBackend(File file) {
+            this.file = file;
+        }
+
+        void ready() {
+            onReady.run();
+        }
+
+        /** Асинхронная ошибка, как MediaPlayer.onError. */
+        void fail() {
+            onError.accept("MEDIA_UNSUPPORTED");
+        }
+
+        @Override public void setOnReady(Runnable onReady) { this.onReady = onReady; }
+        @Override public void setOnError(Consumer<String> onError) { this.onError = onError; }
+        @Override public void play() { playing = true; }
+        @Override public void pause() { playing = false; }
+        @Override public void stop() { playing = false; }
+        @Override public void dispose() { disposed = true; }
+        @Override public boolean isPlaying() { return playing; }
+        @Override public void seek(Duration t) { time.set(t); }
+        @Override public void setVolume(double volume) { }
+        @Override public Duration getCurrentTime() { return time.get(); }
+        @Override public Duration getTotalDuration() { return Duration.minutes(3); }
+        @Override public ReadOnlyObjectProperty<Duration> currentTimeProperty() { return time.getReadOnlyProperty(); }
+        @Override public void setAudioSpectrumInterval(double interval) { }
+        @Override public void setAudioSpectrumNumBands(int bands) { }
+        @Override public void setAudioSpectrumThreshold(int threshold) { }
+        @Override public void setAudioSpectrumListener(AudioSpectrumListener listener) { }
+    }
+
+    private final List<FakeBackend> opened = new ArrayList<>();
+    private final List<PlayerController.State> states = new ArrayList<>();
+    private Playlist playlist;
+    private PlayerController controller;
+
+    @BeforeEach
+    void setUp() {
+        playlist = new Playlist();
+        playlist.addAll(PlaylistTest.tracks(3));
+        controller = new PlayerController(playlist, f -> {
+            FakeBackend b = new FakeBackend(f);
+            opened.add(b);
+            return b;
+        });
+        controller.setListener(new PlayerController.Listener() {
+            @Override
+            public void stateChanged(PlayerController.State state) {
+                states.add(state);
+            }
+        });
+    }
+
+    private FakeBackend last() {
+        return opened.get(opened.size() - 1);
+    }
+
+    @Test
+    void playStartsWhenReady() {
+        controller.play(1);
+
+        assertEquals(PlayerController.State.LOADING, controller.state());
+        assertFalse(last().playing);
+
+        last().ready();
+
+        assertEquals(PlayerController.State.PLAYING, controller.state());
+        assertTrue(last().playing);
+        assertEquals(playlist.get(1), last().file);
+        assertEquals(List.of(PlayerController.State.LOADING, PlayerController.State.PLAYING), states);
+    }
+
+    @Test
+    void togglePausesAndResumes() {
+        controller.toggle();
+        last().ready();
+
+        controller.toggle();
+        assertEquals(PlayerController.State.PAUSED, controller.state());
+        assertFalse(last().playing);
+
+        controller.toggle();
+        assertEquals(PlayerController.State.PLAYING, controller.state());
+        assertTrue(last().playing);
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void toggleWhileLoadingDoesNothing() {
+        controller.play(0);
+        controller.toggle();
+
+        assertEquals(PlayerController.State.LOADING, controller.state());
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void nextReleasesPreviousTrackAndWraps() {
+        controller.play(2);
+        FakeBackend first = last();
+        first.ready();
+
+        controller.next();
+
+        assertTrue(first.disposed);
+        assertEquals(0, playlist.currentIndex());
+        assertSame(last(), controller.backend());
+
+        controller.previous();
+        assertEquals(2, playlist.currentIndex());
+    }
+
+    @Test
+    void staleReadyIsIgnored() {
+        controller.play(0);
+        FakeBackend stale = last();
+        controller.play(1);
+
+        stale.ready();
+
+        assertFalse(stale.playing);
+        assertEquals(PlayerController.State.LOADING, controller.state());
+    }
+
+    @Test
+    void emptyPlaylistStaysIdle() {
+        PlayerController empty = new PlayerController(new Playlist(), FakeBackend::new);
+
+        empty.toggle();
+        empty.next();
+
+        assertEquals(PlayerController.State.IDLE, empty.state());
+        assertNull(empty.backend());
+    }
+
+    @Test
+    void failedOpenGoesIdle() {
+        PlayerController failing = new PlayerController(playlist, f -> {
+            throw new IllegalStateException("codec not supported");
+        });
+
+        failing.play(1);
+
+        assertEquals(PlayerController.State.IDLE, failing.state());
+        assertNull(failing.backend());
+        failing.toggle(); // повторная попытка, а не NPE
+        assertEquals(PlayerController.State.IDLE, failing.state());
+    }
+
+    @Test
+    void failedOpenReleasesPreviousTrack() {
+        boolean[] fail = {false};
+        PlayerController c = new PlayerController(playlist, f -> {
+            if (fail[0]) throw new IllegalStateException("file vanished");
+            FakeBackend b = new FakeBackend(f);
+            opened.add(b);
+            return b;
+        });
+        c.play(0);
+        last().ready();
+        c.toggle();
+        assertEquals(PlayerController.State.PAUSED, c.state());
+
+        fail[0] = true;
+        c.next();
+
+        assertTrue(last().disposed);
+        assertNull(c.backend());
+        assertEquals(PlayerController.State.IDLE, c.state());
+        c.toggle();
+        assertEquals(PlayerController.State.IDLE, c.state());
+    }
+
+    @Test
+    void asyncErrorWhileLoadingGoesIdle() {
+        controller.play(1);
+        FakeBackend failed = last();
+
+        failed.fail();
+
+        assertTrue(failed.disposed);
+        assertNull(controller.backend());
+        assertEquals(PlayerController.State.IDLE, controller.state());
+
+        controller.toggle(); // пользователь может попробовать снова
+        assertEquals(PlayerController.State.LOADING, controller.state());
+        assertEquals(2, opened.size());
+        assertEquals(playlist.get(1), last().file);
+    }
+
+    @Test
+    void asyncErrorWhilePlayingGoesIdle() {
+        controller.play(0);
+        last().ready();
+
+        last().fail();
+
+        assertNull(controller.backend());
+        assertEquals(PlayerController.State.IDLE, controller.state());
+    }
+
+    @Test
+    void staleErrorIsIgnored() {
+        controller.play(0);
+        FakeBackend stale = last();
+        controller.play(1);
+
+        stale.fail();
+
+        assertSame(last(), controller.backend());
+        assertEquals(PlayerController.State.LOADING, controller.state());
+    }
+
+    @Test
+    void closeReleasesBackend() {
+        controller.play(0);
+        last().ready();
+
+        controller.close();
+
+        assertTrue(last().disposed);
+        assertNull(controller.backend());
+        assertEquals(PlayerController.State.IDLE, controller.state());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaylistStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void missingFileLoadsEmpty() throws IOException {
+        assertTrue(PlaylistStore.file(dir.resolve("none.txt")).load().isEmpty());
+    }
+
+    @Test
+    void roundTripKeepsOrderAndUnicode() throws IOException {
+        PlaylistStore store = PlaylistStore.file(dir.resolve("playlist.txt"));
+        List<File> files = List.of(
+                new File("/music/Кино/Группа крови.mp3"),
+                new File("/music/a b/c.wav"));
+
+        store.save(files);
+
+        assertEquals(files, store.load());
+        assertFalse(Files.exists(dir.resolve("playlist.txt.tmp")));
+    }
+
+    /** Сохранение и загрузка 100k путей — без заметной паузы при изменении плейлиста. */
+    @Test
+    void saveReplacesPreviousPlaylist() throws IOException {
+        PlaylistStore store = PlaylistStore.file(dir.resolve("playlist.txt"));
+        store.save(List.of(new File("/music/a.mp3"), new File("/music/b.mp3")));
+
+        store.save(List.of(new File("/music/c.wav")));
+
+        assertEquals(List.of(new File("/music/c.wav")), store.load());
+        assertFalse(Files.exists(dir.resolve("playlist.txt.tmp")));
+    }
+
+    @Test
+    void largePlaylistBudget() {
+        PlaylistStore store = PlaylistStore.file(dir.resolve("large.txt"));
+        List<File> files = PlaylistTest.tracks(PlaylistTest.LARGE);
+        List<File> loaded = new ArrayList<>();
+
+        Runnable save = () -> {
+            try {
+                store.save(files);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        Runnable load = () -> {
+            try {
+                loaded.clear();
+                loaded.addAll(store.load());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        Budget.assertTime("save 100k", Budget.measure(1, 3, save), 300_000);
+        Budget.assertTime("load 100k", Budget.measure(1, 3, load), 300_000);
+        assertEquals(files, loaded);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaylistTest {
+
+    static final int LARGE = 100_000;
+
+    static List<File> tracks(int n) {
+        List<File> files = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) files.add(new File("/music/artist " + (i % 500) + "/track " + i + ".mp3"));
+        return files;
+    }
+
+    @Test
+    void emptyPlaylistHasNoCurrent() {
+        Playlist p = new Playlist();
+
+        assertEquals(-1, p.select(3));
+        assertEquals(-1, p.nextIndex());
+        assertEquals(-1, p.previousIndex());
+        assertNull(p.current());
+    }
+
+    @Test
+    void selectOutOfRangeFallsBackToFirst() {
+        Playlist p = new Playlist();
+        p.addAll(tracks(3));
+
+        assertEquals(0, p.select(7));
+        assertEquals(2, p.select(2));
+        assertEquals(0, p.nextIndex());
+        assertEquals(1, p.previousIndex());
+    }
+
+    @Test
+    void addAllReturnsFirstNewIndex() {
+        Playlist p = new Playlist();
+        p.addAll(tracks(4));
+
+        assertEquals(4, p.addAll(tracks(2)));
+        assertEquals(6, p.size());
+    }
+
+    @Test
+    void removeKeepsCurrentTrack() {
+        Playlist p = new Playlist();
+        List<File> files = tracks(5);
+        p.addAll(files);
+        p.select(3);
+
+        p.remove(1);
+        assertEquals(2, p.currentIndex());
+        assertTrue(p.isCurrent(files.get(3)));
+
+        p.remove(3);
+        assertTrue(p.isCurrent(files.get(3)));
+
+        p.remove(2);
+        assertEquals(-1, p.currentIndex());
+        assertFalse(p.isCurrent(files.get(3)));
+    }
+
+    @Test
+    void removingCurrentKeepsNeighbours() {
+        Playlist p = new Playlist();
+        List<File> files = tracks(6);
+        p.addAll(files);
+        p.select(3);
+
+        p.remove(3);
+        assertEquals(files.get(4), p.get(p.nextIndex()));
+        assertEquals(files.get(2), p.get(p.previousIndex()));
+
+        // Удаление выше по списку сдвигает позицию вместе с соседями
+        p.remove(0);
+        assertEquals(files.get(4), p.get(p.nextIndex()));
+        assertEquals(files.get(2), p.get(p.previousIndex()));
+
+        p.select(p.nextIndex());
+        assertTrue(p.isCurrent(files.get(4)));
+    }
+
+    @Test
+    void removingLastCurrentWrapsToStart() {
+        Playlist p = new Playlist();
+        List<File> files = tracks(3);
+        p.addAll(files);
+        p.select(2);
+
+        p.remove(2);
+
+        assertEquals(0, p.nextIndex());
+        assertEquals(1, p.previousIndex());
+    }
+
+    @Test
+    void filesViewIsReadOnly() {
+        Playlist p = new Playlist();
+        p.addAll(tracks(1));
+
+        assertThrows(UnsupportedOperationException.class, () -> p.files().clear());
+        assertEquals(1, p.size());
+    }
+
+    /** Операции над плейлистом в 100k треков — не дольше, чем заметно пользователю. */
+    @Test
+    void largePlaylistBudget() {
+        List<File> files = tracks(LARGE);
+        Playlist p = new Playlist();
+
+        Budget.Cost add = Budget.measure(3, 10, () -> new Playlist().addAll(files));
+        Budget.assertTime("addAll 100k", add, 20_000);
+        Budget.assertAllocation("addAll 100k", add, LARGE * 8L + 1024); // копия toArray и массив списка
+
+        p.addAll(files);
+        assertEquals(LARGE, p.size());
+
+        Budget.Cost names = Budget.measure(2, 3, p::names);
+        Budget.assertTime("names 100k", names, 100_000);
+        Budget.assertAllocation("names 100k", names, LARGE * 200L);
+
+        // Удаление из начала — худший случай для сдвига массива
+        Budget.Cost remove = Budget.measure(0, 1_000, () -> p.remove(0));
+        Budget.assertTime("remove head of 100k", remove, 1_000);
+        Budget.assertAllocation("remove head of 100k", remove, 64);
+
+        p.select(p.size() / 2);
+        Budget.Cost next = Budget.measure(10_000, 100_000, () -> p.select(p.nextIndex()));
+        Budget.assertTime("next in 100k", next, 1);
+        Budget.assertAllocation("next in 100k", next, 1);
+    }
+}
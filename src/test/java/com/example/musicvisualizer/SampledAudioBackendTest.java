@@ -0,0 +1,182 @@
+package com.example.musicvisualizer;
+
+import javafx.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Бэкенд javax.sound на {@link NullAudioSink}: пауза, перемотка и конец трека без звуковой карты. */
+class SampledAudioBackendTest {
+
+    static final AudioFormat FORMAT = new AudioFormat(44_100, 16, 1, true, false);
+    private static final double TOLERANCE = 0.08; // секунды: шаг вывода и планировщик потоков
+
+    @TempDir
+    Path dir;
+
+    private SampledAudioBackend backend;
+
+    @BeforeAll
+    static void startFx() throws InterruptedException {
+        FxTestSupport.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) backend.dispose();
+    }
+
+    /** WAV с синусом 1 кГц заданной длины. */
+    static File tone(Path dir, double seconds) throws IOException {
+        int frames = (int) (seconds * FORMAT.getFrameRate());
+        byte[] pcm = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short v = (short) (8000 * Math.sin(2 * Math.PI * 1000 * i / FORMAT.getFrameRate()));
+            pcm[2 * i] = (byte) v;
+            pcm[2 * i + 1] = (byte) (v >> 8);
+        }
+        File file = dir.resolve("tone.wav").toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), FORMAT, frames),
+                AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError(message);
+            Thread.sleep(10);
+        }
+    }
+
+    static double shownSeconds(PlaybackBackend backend) throws Exception {
+        return FxTestSupport.call(() -> backend.currentTimeProperty().get().toSeconds());
+    }
+
+    private void awaitShown(double from, double to) throws InterruptedException {
+        await(() -> {
+            try {
+                double shown = shownSeconds(backend);
+                return shown >= from && shown <= to;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "currentTime reaches " + from);
+    }
+
+    /** Метки времени кадров спектра, пришедших в FX-поток. */
+    private List<Double> spectrumStamps() {
+        List<Double> stamps = new CopyOnWriteArrayList<>();
+        backend.setAudioSpectrumInterval(0.05);
+        backend.setAudioSpectrumNumBands(32);
+        backend.setAudioSpectrumListener((t, d, mags, phases) -> stamps.add(t));
+        return stamps;
+    }
+
+    private void assertFramesFrom(List<Double> frames, double seekTo) {
+        assertFalse(frames.isEmpty(), "spectrum resumes after the seek");
+        double heard = backend.getCurrentTime().toSeconds();
+        for (double t : frames) {
+            assertTrue(t >= seekTo, "frame from before the seek: " + t);
+            assertTrue(t <= heard + TOLERANCE, "frame ahead of the audio: " + t + " > " + heard);
+        }
+    }
+
+    @Test
+    void seekWhilePausedMovesPositionAndAddsUp() throws Exception {
+        backend = new SampledAudioBackend(tone(dir, 10), new NullAudioSink(), 100);
+        backend.play();
+        Thread.sleep(300);
+        backend.pause();
+        Thread.sleep(200); // поток декодирования заполнил буфер и висит в write()
+
+        double paused = backend.getCurrentTime().toSeconds();
+        backend.seek(Duration.seconds(paused + 2));
+        backend.seek(backend.getCurrentTime().add(Duration.seconds(2)));
+
+        assertEquals(paused + 4, backend.getCurrentTime().toSeconds(), TOLERANCE);
+        awaitShown(paused + 4 - TOLERANCE, paused + 4 + TOLERANCE);
+
+        Thread.sleep(200);
+        assertFalse(backend.isPlaying());
+        assertEquals(paused + 4, backend.getCurrentTime().toSeconds(), TOLERANCE, "paused position does not move");
+
+        backend.play();
+        Thread.sleep(300);
+        assertEquals(paused + 4.3, backend.getCurrentTime().toSeconds(), 2 * TOLERANCE);
+    }
+
+    @Test
+    void spectrumFollowsSeekWhilePlaying() throws Exception {
+        backend = new SampledAudioBackend(tone(dir, 10), new NullAudioSink(), 100);
+        List<Double> stamps = spectrumStamps();
+        backend.play();
+        Thread.sleep(300);
+
+        backend.seek(Duration.seconds(5));
+        awaitShown(5, 5.5);
+        int mark = stamps.size();
+        Thread.sleep(400);
+
+        assertEquals(5.4, backend.getCurrentTime().toSeconds(), 2 * TOLERANCE);
+        assertFramesFrom(stamps.subList(mark, stamps.size()), 5);
+    }
+
+    @Test
+    void spectrumFollowsSeekWhilePaused() throws Exception {
+        backend = new SampledAudioBackend(tone(dir, 10), new NullAudioSink(), 100);
+        List<Double> stamps = spectrumStamps();
+        backend.play();
+        Thread.sleep(300);
+        backend.pause();
+        Thread.sleep(100);
+
+        backend.seek(Duration.seconds(6));
+        awaitShown(6 - TOLERANCE, 6 + TOLERANCE);
+        int mark = stamps.size();
+        Thread.sleep(300);
+        assertEquals(mark, stamps.size(), "frames decoded before the seek are dropped");
+        assertEquals(6, backend.getCurrentTime().toSeconds(), TOLERANCE);
+
+        backend.play();
+        Thread.sleep(400);
+        assertFramesFrom(stamps.subList(mark, stamps.size()), 6);
+    }
+
+    @Test
+    void pauseDuringFinalDrainKeepsTheTail() throws Exception {
+        backend = new SampledAudioBackend(tone(dir, 2), new NullAudioSink(), 100);
+        double total = backend.getTotalDuration().toSeconds();
+        backend.seek(Duration.seconds(total - 0.3));
+        backend.play();
+        Thread.sleep(250); // весь файл прочитан, буфер доигрывается
+        backend.pause();
+        Thread.sleep(100);
+
+        assertFalse(backend.isPlaying());
+        double paused = backend.getCurrentTime().toSeconds();
+        assertTrue(paused < total - 0.02, "pause during the final drain must not skip the tail: " + paused);
+
+        backend.play();
+        await(() -> !backend.isPlaying(), "track finishes after resuming");
+        assertEquals(total, backend.getCurrentTime().toSeconds(), TOLERANCE);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleInstanceTest {
+
+    @TempDir
+    Path dir;
+
+    private SingleInstance primary;
+
+    @BeforeEach
+    void useTempSocketDir() {
+        System.setProperty("visualizer.socketDir", dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (primary != null) primary.close();
+        System.clearProperty("visualizer.socketDir");
+    }
+
+    @Test
+    void plainRelaunchAsksToShowWindow() {
+        assertEquals(List.of(SingleInstance.SHOW), SingleInstance.parseArgs(List.of()));
+        assertEquals(List.of(SingleInstance.PLAY), SingleInstance.parseArgs(List.of("--play")));
+    }
+
+    /** Второй запуск, пришедший раньше обработчика (JavaFX ещё поднимается), не теряет команды. */
+    @Test
+    void secondLaunchForwardsBeforeFxIsReady() throws Exception {
+        primary = SingleInstance.claim(List.of(SingleInstance.SHOW));
+        assertNotNull(primary);
+
+        assertNull(SingleInstance.claim(List.of(SingleInstance.NEXT)));
+
+        FxTestSupport.start();
+        CompletableFuture<List<String>> received = new CompletableFuture<>();
+        FxTestSupport.call(() -> {
+            primary.setHandler(received::complete);
+            return null;
+        });
+        assertEquals(List.of(SingleInstance.NEXT), received.get(5, TimeUnit.SECONDS));
+    }
+
+    /** Настоящая точка входа в отдельной JVM: команды доходят, процесс завершается сам. */
+    @Test
+    void forwardingLaunchExits() throws Exception {
+        primary = SingleInstance.claim(List.of(SingleInstance.SHOW));
+        FxTestSupport.start();
+        CompletableFuture<List<String>> received = new CompletableFuture<>();
+        FxTestSupport.call(() -> {
+            primary.setHandler(received::complete);
+            return null;
+        });
+
+        Process second = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dvisualizer.socketDir=" + dir,
+                Launcher.class.getName(), "--next")
+                .redirectErrorStream(true)
+                .redirectOutput(dir.resolve("second.log").toFile())
+                .start();
+
+        boolean exited = second.waitFor(30, TimeUnit.SECONDS);
+        if (!exited) second.destroyForcibly();
+        assertTrue(exited, "second launch must exit after forwarding");
+        assertEquals(0, second.exitValue(), () -> read(dir.resolve("second.log")));
+        assertEquals(List.of(SingleInstance.NEXT), received.get(5, TimeUnit.SECONDS));
+    }
+
+    private static String read(Path log) {
+        try {
+            return Files.readString(log);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    /** Клиент, который подключился и молчит, не мешает следующим запускам и отключается по таймауту. */
+    @Test
+    void silentClientDoesNotBlockOthers() throws Exception {
+        primary = SingleInstance.claim(List.of(SingleInstance.SHOW));
+        FxTestSupport.start();
+        List<String> received = new CopyOnWriteArrayList<>();
+        FxTestSupport.call(() -> {
+            primary.setHandler(received::addAll);
+            return null;
+        });
+
+        try (SocketChannel silent = SocketChannel.open(UnixDomainSocketAddress.of(dir.resolve("musicvisualizer.sock")))) {
+            silent.write(StandardCharsets.UTF_8.encode("pl"));
+
+            assertNull(SingleInstance.claim(List.of(SingleInstance.NEXT)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.isEmpty() && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(List.of(SingleInstance.NEXT), received);
+
+            CompletableFuture<Integer> eof = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return silent.read(ByteBuffer.allocate(1));
+                } catch (IOException e) {
+                    return -2;
+                }
+            });
+            assertEquals(-1, eof.get(SingleInstance.CLIENT_TIMEOUT_MS + 3_000, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(List.of(SingleInstance.NEXT), received, "an unfinished message is dropped");
+    }
+
+    @Test
+    void oversizedMessageIsDropped() throws Exception {
+        primary = SingleInstance.claim(List.of(SingleInstance.SHOW));
+        FxTestSupport.start();
+        List<String> received = new CopyOnWriteArrayList<>();
+        FxTestSupport.call(() -> {
+            primary.setHandler(received::addAll);
+            return null;
+        });
+
+        String huge = SingleInstance.ENQUEUE + "x".repeat(SingleInstance.MAX_MESSAGE_BYTES) + "\n";
+        try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(dir.resolve("musicvisualizer.sock")))) {
+            ByteBuffer buf = StandardCharsets.UTF_8.encode(huge);
+            try {
+                while (buf.hasRemaining()) ch.write(buf);
+            } catch (IOException closedByServer) {
+                // сервер может оборвать соединение, не дочитав
+            }
+        }
+        assertNull(SingleInstance.claim(List.of(SingleInstance.NEXT)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.isEmpty() && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(List.of(SingleInstance.NEXT), received);
+    }
+
+    @Test
+    void staleSocketIsReplaced() throws Exception {
+        Path socket = dir.resolve("musicvisualizer.sock");
+        try (ServerSocketChannel dead = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            dead.bind(UnixDomainSocketAddress.of(socket));
+        }
+        assertTrue(Files.exists(socket));
+
+        primary = SingleInstance.claim(List.of(SingleInstance.SHOW));
+
+        assertNotNull(primary);
+        assertNull(SingleInstance.claim(List.of(SingleInstance.SHOW)), "the new socket is live");
+    }
+}
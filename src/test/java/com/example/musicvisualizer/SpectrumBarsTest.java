@@ -0,0 +1,99 @@
+package com.example.musicvisualizer;
+
+import javafx.scene.Scene;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.Stage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Отрисовка полос на живой сцене под headless Monocle. */
+class SpectrumBarsTest {
+
+    private static final int BANDS = 68;
+    private static final int FRAMES = 2_000;
+    private static final Color LOW = Theme.DARK.colorLow;
+    private static final Color HIGH = Theme.DARK.colorHigh;
+
+    private static SpectrumReplay replay;
+    private static Stage stage;
+    private static HBox visualizer;
+    private static SpectrumProcessor processor;
+    private static SpectrumBars bars;
+
+    @BeforeAll
+    static void showVisualizer(@TempDir Path dir) throws Exception {
+        replay = SyntheticSpectrum.record(dir.resolve("synthetic.mvsp"), FRAMES, BANDS);
+        FxTestSupport.start();
+        FxTestSupport.call(() -> {
+            processor = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+            bars = new SpectrumBars(processor);
+            visualizer = new HBox(-0.88, bars.nodes());
+            stage = new Stage();
+            stage.setScene(new Scene(visualizer, 520, 220));
+            stage.show();
+            return null;
+        });
+    }
+
+    @AfterAll
+    static void hide() throws Exception {
+        FxTestSupport.call(() -> {
+            stage.hide();
+            return null;
+        });
+    }
+
+    @Test
+    void barsFollowProcessor() throws Exception {
+        FxTestSupport.call(() -> {
+            replay.replay((t, d, mags, phases) -> {
+                processor.process(mags, 0);
+                bars.render(LOW, HIGH);
+            });
+
+            Rectangle[] nodes = bars.nodes();
+            assertEquals(BANDS, nodes.length);
+            for (int i = 0; i < BANDS; i++) {
+                assertEquals(processor.height(i), nodes[i].getHeight());
+                assertEquals(processor.opacity(i), ((Color) nodes[i].getFill()).getOpacity(), 1e-6);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void recolorUsesNewPalette() throws Exception {
+        FxTestSupport.call(() -> {
+            bars.recolor(Color.BLACK, Color.BLACK);
+            Color fill = (Color) bars.nodes()[0].getFill();
+            assertEquals(0, fill.getRed());
+            assertTrue(fill.getOpacity() > 0);
+            return null;
+        });
+    }
+
+    /** Кадр визуализатора целиком: спектр, полосы и проход CSS/раскладки сцены. */
+    @Test
+    void frameBudget() throws Exception {
+        Budget.Cost cost = FxTestSupport.call(() -> Budget.measure(3, 5, () ->
+                replay.replay((t, d, mags, phases) -> {
+                    processor.process(mags, 0);
+                    bars.render(LOW, HIGH);
+                    visualizer.applyCss();
+                    visualizer.layout();
+                })).per(FRAMES));
+
+        // Память на кадр — в основном новые Color для каждой полосы (они неизменяемые)
+        Budget.assertAllocation("visualizer frame", cost, 16 * 1024);
+        Budget.assertTime("visualizer frame", cost, 500);
+    }
+}
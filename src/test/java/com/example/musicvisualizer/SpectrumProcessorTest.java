@@ -0,0 +1,84 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectrumProcessorTest {
+
+    private static final int BANDS = 68;
+    private static final int FRAMES = 20_000;
+
+    private static SpectrumReplay replay;
+
+    @BeforeAll
+    static void recordSource(@TempDir Path dir) throws Exception {
+        replay = SyntheticSpectrum.record(dir.resolve("synthetic.mvsp"), FRAMES, BANDS);
+    }
+
+    @Test
+    void silenceKeepsBarsAtMinimum() {
+        SpectrumProcessor p = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+        float[] silence = new float[BANDS];
+        Arrays.fill(silence, SyntheticSpectrum.THRESHOLD);
+
+        for (int i = 0; i < 100; i++) p.process(silence, 0);
+
+        assertEquals(0, p.energy());
+        for (int i = 0; i < BANDS; i++) assertEquals(SpectrumProcessor.MIN_HEIGHT, p.height(i));
+    }
+
+    @Test
+    void fullScaleSaturatesEnergy() {
+        SpectrumProcessor p = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+        float[] loud = new float[BANDS];
+
+        for (int i = 0; i < 100; i++) p.process(loud, 0);
+
+        assertEquals(1.0, p.energy());
+        assertEquals(1.0, p.opacity(0));
+        assertEquals(1.0, p.peakEnergy());
+    }
+
+    @Test
+    void gainShiftsTheFloor() {
+        SpectrumProcessor quiet = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+        SpectrumProcessor boosted = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+        float[] mags = new float[BANDS];
+        Arrays.fill(mags, -40);
+
+        quiet.process(mags, 0);
+        boosted.process(mags, 10);
+
+        assertTrue(boosted.energy() > quiet.energy());
+        assertTrue(boosted.height(0) > quiet.height(0));
+    }
+
+    @Test
+    void fewerBandsThanBarsStayInRange() {
+        SpectrumProcessor p = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+        float[] mags = new float[AdaptiveGovernor.LEVELS[AdaptiveGovernor.LEVELS.length - 1].bands()];
+
+        p.process(mags, 0);
+
+        assertTrue(p.height(BANDS / 2) > SpectrumProcessor.MIN_HEIGHT);
+    }
+
+    /** Обработка кадра не выделяет память и укладывается в несколько микросекунд. */
+    @Test
+    void frameBudget() {
+        SpectrumProcessor p = new SpectrumProcessor(BANDS, SyntheticSpectrum.THRESHOLD);
+
+        Budget.Cost cost = Budget.measure(5, 10,
+                () -> replay.replay((t, d, mags, phases) -> p.process(mags, 3))).per(FRAMES);
+
+        Budget.assertAllocation("spectrum frame", cost, 8);
+        Budget.assertTime("spectrum frame", cost, 20);
+    }
+}
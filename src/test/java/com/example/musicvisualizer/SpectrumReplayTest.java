@@ -0,0 +1,53 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpectrumReplayTest {
+
+    private static final int BANDS = 68;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void truncatedRecordingStopsCleanly() throws Exception {
+        Path full = dir.resolve("full.mvsp");
+        SyntheticSpectrum.record(full, 100, BANDS);
+        byte[] bytes = Files.readAllBytes(full);
+        Path cut = dir.resolve("cut.mvsp");
+        Files.write(cut, Arrays.copyOf(bytes, bytes.length - 37));
+
+        int frames = SpectrumReplay.open(cut).replay((t, d, mags, phases) -> { });
+
+        assertEquals(99, frames);
+    }
+
+    /** Без пауз кадры не копятся в очереди получателя: ждёт не больше одной задачи. */
+    @Test
+    void unthrottledReplayCoalesces() throws Exception {
+        SpectrumReplay replay = SyntheticSpectrum.record(dir.resolve("fast.mvsp"), 5_000, BANDS);
+        List<Runnable> queued = new ArrayList<>();
+        List<Double> delivered = new ArrayList<>();
+
+        Thread t = replay.start((ts, d, mags, phases) -> delivered.add(ts), 0, r -> {
+            synchronized (queued) {
+                queued.add(r);
+            }
+        });
+        t.join(10_000);
+
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        assertEquals(1, delivered.size());
+        assertEquals(4_999 * 0.045, delivered.get(0), 1e-6); // дошёл последний кадр
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.musicvisualizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Синтетический источник спектра вместо медиафайла: бегущий пик на фоне шума,
+ * записанный через {@link SpectrumRecorder} и проигрываемый {@link SpectrumReplay} —
+ * тем же путём, что и записи с настоящего плеера.
+ */
+final class SyntheticSpectrum {
+
+    static final int THRESHOLD = -60;
+
+    private SyntheticSpectrum() {
+    }
+
+    static SpectrumReplay record(Path file, int frames, int bands) throws IOException {
+        float[] mags = new float[bands];
+        float[] phases = new float[bands];
+        try (SpectrumRecorder recorder = new SpectrumRecorder(file, THRESHOLD, true)) {
+            for (int f = 0; f < frames; f++) {
+                fill(mags, phases, f);
+                recorder.record(f * 0.045, 0.045, mags, phases);
+            }
+        }
+        return SpectrumReplay.open(file);
+    }
+
+    /** Кадр номер {@code frame}: пик гуляет по полосам, уровень медленно «дышит». */
+    static void fill(float[] mags, float[] phases, int frame) {
+        int bands = mags.length;
+        double peak = (Math.sin(frame * 0.05) * 0.5 + 0.5) * (bands - 1);
+        double level = 0.5 + 0.5 * Math.sin(frame * 0.013);
+        for (int i = 0; i < bands; i++) {
+            double dist = Math.abs(i - peak) / bands;
+            double noise = ((i * 31 + frame * 17) % 13) / 13.0;
+            mags[i] = (float) Math.max(THRESHOLD, -6 - 50 * dist - 20 * (1 - level) - 4 * noise);
+            phases[i] = (float) ((i + frame) % 7 * Math.PI / 7 - Math.PI / 2);
+        }
+    }
+}
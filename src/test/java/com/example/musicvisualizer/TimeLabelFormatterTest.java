@@ -0,0 +1,44 @@
+package com.example.musicvisualizer;
+
+import javafx.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TimeLabelFormatterTest {
+
+    private final TimeLabelFormatter formatter = new TimeLabelFormatter();
+
+    @Test
+    void formatsMinutesAndSeconds() {
+        assertEquals("00:00 / 00:00", formatter.format(0, 0));
+        assertEquals("01:05 / 03:59", formatter.format(65.9, 239.2));
+        assertEquals("99:59 / 99:59", formatter.format(5999, 5999));
+    }
+
+    @Test
+    void minutesOver99AreNotTruncated() {
+        assertEquals("100:00 / 600:00", formatter.format(6000, 36_000));
+        assertEquals("12:34 / 1234:00", formatter.format(754, 74_040));
+    }
+
+    @Test
+    void unknownTotalShowsZero() {
+        assertEquals("00:07 / 00:00", formatter.format(7, Double.NaN));
+        assertEquals("00:07 / 00:00", formatter.format(7, Duration.UNKNOWN.toSeconds()));
+        assertEquals("00:07 / 00:00", formatter.format(7, Duration.INDEFINITE.toSeconds()));
+        assertEquals("00:00 / 00:10", formatter.format(-0.5, 10));
+    }
+
+    @Test
+    void sameSecondReturnsSameString() {
+        String first = formatter.format(12.1, 60);
+
+        assertSame(first, formatter.format(12.9, 60));
+        assertNotSame(first, formatter.format(13.0, 60));
+        assertEquals("00:13 / 01:00", formatter.format(13.0, 60));
+        assertNotSame(formatter.format(13.0, 60), formatter.format(13.0, 61), "total change re-renders");
+    }
+}
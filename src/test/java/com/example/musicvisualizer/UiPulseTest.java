@@ -0,0 +1,85 @@
+package com.example.musicvisualizer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Кадр имитируется прямым вызовом handle() в FX-потоке, поэтому настоящий pulse не вмешивается. */
+class UiPulseTest {
+
+    @BeforeAll
+    static void startFx() throws InterruptedException {
+        FxTestSupport.start();
+    }
+
+    @Test
+    void doubleSlotKeepsLastPostedValue() throws Exception {
+        List<Double> applied = FxTestSupport.call(() -> {
+            List<Double> out = new ArrayList<>();
+            UiPulse pulse = new UiPulse();
+            UiPulse.DoubleSlot slot = pulse.doubleSlot(out::add);
+
+            slot.post(1);
+            slot.post(2);
+            slot.post(3);
+            pulse.handle(0);
+            pulse.handle(1); // ничего нового — ничего не применяется
+            slot.post(4);
+            pulse.handle(2);
+            pulse.stop();
+            return out;
+        });
+
+        assertEquals(List.of(3.0, 4.0), applied);
+    }
+
+    @Test
+    void flagRunsOncePerPulse() throws Exception {
+        List<Integer> runs = FxTestSupport.call(() -> {
+            List<Integer> out = new ArrayList<>();
+            int[] count = {0};
+            UiPulse pulse = new UiPulse();
+            UiPulse.Flag flag = pulse.flag(() -> count[0]++);
+
+            flag.mark();
+            flag.mark();
+            flag.mark();
+            pulse.handle(0);
+            out.add(count[0]);
+            pulse.handle(1);
+            out.add(count[0]);
+            flag.mark();
+            pulse.handle(2);
+            out.add(count[0]);
+            pulse.stop();
+            return out;
+        });
+
+        assertEquals(List.of(1, 1, 2), runs);
+    }
+
+    @Test
+    void markDuringApplyWaitsForNextPulse() throws Exception {
+        List<Integer> runs = FxTestSupport.call(() -> {
+            List<Integer> out = new ArrayList<>();
+            UiPulse pulse = new UiPulse();
+            UiPulse.Flag[] self = new UiPulse.Flag[1];
+            self[0] = pulse.flag(() -> {
+                out.add(out.size());
+                if (out.size() == 1) self[0].mark(); // перерисовка просит ещё один кадр
+            });
+
+            self[0].mark();
+            pulse.handle(0);
+            pulse.handle(1);
+            pulse.stop();
+            return out;
+        });
+
+        assertEquals(List.of(0, 1), runs);
+    }
+}